@@ -0,0 +1,294 @@
+package com.gocardless;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.gocardless.resources.CustomerBankAccount;
+import com.gocardless.resources.Mandate;
+import com.gocardless.resources.Payment;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Looks up resources by their parent (for example payments by mandate), combining the lookups
+ * made within a short window into a single list request for each parent, rather than fetching
+ * each resource separately.
+ *
+ * The first lookup for a parent opens a window (10 milliseconds by default). Every lookup for
+ * the same parent made before the window closes shares the result of one list request, which
+ * fetches all of the parent's resources, page by page. Each lookup gets a future for its own
+ * result.
+ *
+ * <pre>
+ * BatchLoader&lt;Payment&gt; payments = BatchLoader.paymentsByMandate(client).build();
+ *
+ * // From many threads
+ * ListenableFuture&lt;Payment&gt; payment = payments.load("MD123", "PM123");
+ * ListenableFuture&lt;List&lt;Payment&gt;&gt; all = payments.loadAll("MD123");
+ * </pre>
+ *
+ * This saves requests when many lookups share a parent, but each list request fetches every
+ * resource belonging to the parent, so it's best suited to parents with few children.
+ *
+ * @param <T> the type of resource looked up
+ */
+public class BatchLoader<T> {
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("gocardless-batch-loader-%d").build());
+    private static final int PAGE_SIZE = 500;
+    private final Function<String, ? extends Iterable<T>> lister;
+    private final Function<T, String> idFunction;
+    private final long windowNanos;
+    private final Executor executor;
+    // Batches whose window is still open, by parent.
+    private final ConcurrentMap<String, SettableFuture<Map<String, T>>> pending =
+            new ConcurrentHashMap<>();
+
+    private BatchLoader(Builder<T> builder) {
+        this.lister = builder.lister;
+        this.idFunction = builder.idFunction;
+        this.windowNanos = builder.windowNanos;
+        this.executor = builder.executor != null ? builder.executor
+                : Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("gocardless-batch-loader-list-%d").build());
+    }
+
+    /**
+     * Returns a builder for a loader which lists the resources belonging to a parent with the
+     * given function.
+     *
+     * @param lister returns every resource belonging to a parent, for example by calling
+     *     `iterate()` on a list request filtered by the parent
+     * @param idFunction returns a resource's ID
+     */
+    public static <T> Builder<T> newBuilder(Function<String, ? extends Iterable<T>> lister,
+            Function<T, String> idFunction) {
+        return new Builder<>(lister, idFunction);
+    }
+
+    /**
+     * Returns a builder for a loader of payments by mandate ID.
+     */
+    public static Builder<Payment> paymentsByMandate(final GoCardlessClient client) {
+        return newBuilder(new Function<String, Iterable<Payment>>() {
+            @Override
+            public Iterable<Payment> apply(String mandate) {
+                return client.payments().list().withMandate(mandate).withLimit(PAGE_SIZE)
+                        .iterate();
+            }
+        }, new Function<Payment, String>() {
+            @Override
+            public String apply(Payment payment) {
+                return payment.getId();
+            }
+        });
+    }
+
+    /**
+     * Returns a builder for a loader of payments by subscription ID.
+     */
+    public static Builder<Payment> paymentsBySubscription(final GoCardlessClient client) {
+        return newBuilder(new Function<String, Iterable<Payment>>() {
+            @Override
+            public Iterable<Payment> apply(String subscription) {
+                return client.payments().list().withSubscription(subscription)
+                        .withLimit(PAGE_SIZE).iterate();
+            }
+        }, new Function<Payment, String>() {
+            @Override
+            public String apply(Payment payment) {
+                return payment.getId();
+            }
+        });
+    }
+
+    /**
+     * Returns a builder for a loader of mandates by customer ID.
+     */
+    public static Builder<Mandate> mandatesByCustomer(final GoCardlessClient client) {
+        return newBuilder(new Function<String, Iterable<Mandate>>() {
+            @Override
+            public Iterable<Mandate> apply(String customer) {
+                return client.mandates().list().withCustomer(customer).withLimit(PAGE_SIZE)
+                        .iterate();
+            }
+        }, new Function<Mandate, String>() {
+            @Override
+            public String apply(Mandate mandate) {
+                return mandate.getId();
+            }
+        });
+    }
+
+    /**
+     * Returns a builder for a loader of customer bank accounts by customer ID.
+     */
+    public static Builder<CustomerBankAccount> customerBankAccountsByCustomer(
+            final GoCardlessClient client) {
+        return newBuilder(new Function<String, Iterable<CustomerBankAccount>>() {
+            @Override
+            public Iterable<CustomerBankAccount> apply(String customer) {
+                return client.customerBankAccounts().list().withCustomer(customer)
+                        .withLimit(PAGE_SIZE).iterate();
+            }
+        }, new Function<CustomerBankAccount, String>() {
+            @Override
+            public String apply(CustomerBankAccount customerBankAccount) {
+                return customerBankAccount.getId();
+            }
+        });
+    }
+
+    /**
+     * Looks up a single resource belonging to a parent.
+     *
+     * @param parentId the ID of the parent, for example a mandate
+     * @param id the ID of the resource
+     * @return a future which completes with the resource, or null if the parent has no
+     *     resource with that ID
+     */
+    public ListenableFuture<T> load(String parentId, final String id) {
+        return Futures.transform(loadBatch(parentId), new Function<Map<String, T>, T>() {
+            @Override
+            public T apply(Map<String, T> resources) {
+                return resources.get(id);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Looks up every resource belonging to a parent.
+     *
+     * @param parentId the ID of the parent, for example a mandate
+     * @return a future which completes with the resources, in the order they were listed
+     */
+    public ListenableFuture<List<T>> loadAll(String parentId) {
+        return Futures.transform(loadBatch(parentId), new Function<Map<String, T>, List<T>>() {
+            @Override
+            public List<T> apply(Map<String, T> resources) {
+                return ImmutableList.copyOf(resources.values());
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Returns the resources belonging to a parent, joining the batch whose window is open if
+     * there is one. Cancelling the returned future doesn't affect other lookups.
+     */
+    private ListenableFuture<Map<String, T>> loadBatch(final String parentId) {
+        Preconditions.checkNotNull(parentId);
+        SettableFuture<Map<String, T>> batch = pending.get(parentId);
+        if (batch == null) {
+            final SettableFuture<Map<String, T>> created = SettableFuture.create();
+            batch = pending.putIfAbsent(parentId, created);
+            if (batch == null) {
+                batch = created;
+                SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Lookups from now on start a new batch, so they see fresh results.
+                        pending.remove(parentId, created);
+                        dispatch(parentId, created);
+                    }
+                }, windowNanos, NANOSECONDS);
+            }
+        }
+        return Futures.nonCancellationPropagating(batch);
+    }
+
+    private void dispatch(final String parentId, final SettableFuture<Map<String, T>> batch) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        batch.set(list(parentId));
+                    } catch (Throwable t) {
+                        batch.setException(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            batch.setException(e);
+        }
+    }
+
+    private Map<String, T> list(String parentId) {
+        Map<String, T> resources = new LinkedHashMap<>();
+        for (T resource : lister.apply(parentId)) {
+            String id = idFunction.apply(resource);
+            if (!resources.containsKey(id)) {
+                resources.put(id, resource);
+            }
+        }
+        return ImmutableMap.copyOf(resources);
+    }
+
+    /**
+     * Builder for {@link BatchLoader}.
+     *
+     * @param <T> the type of resource looked up
+     */
+    public static final class Builder<T> {
+        private final Function<String, ? extends Iterable<T>> lister;
+        private final Function<T, String> idFunction;
+        private long windowNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private Executor executor;
+
+        private Builder(Function<String, ? extends Iterable<T>> lister,
+                Function<T, String> idFunction) {
+            this.lister = Preconditions.checkNotNull(lister);
+            this.idFunction = Preconditions.checkNotNull(idFunction);
+        }
+
+        /**
+         * Configures how long lookups for a parent are collected before its resources are
+         * listed. Longer windows combine more lookups, but delay each of them by up to the
+         * window. Defaults to 10 milliseconds.
+         *
+         * @param window how long to collect lookups for
+         * @param timeUnit the unit of window
+         */
+        public Builder<T> withWindow(long window, TimeUnit timeUnit) {
+            Preconditions.checkArgument(window >= 0, "window must not be negative");
+            this.windowNanos = timeUnit.toNanos(window);
+            return this;
+        }
+
+        /**
+         * Configures the executor on which resources are listed. Each parent's resources are
+         * listed in a single task, which makes requests synchronously. By default, a pool of
+         * daemon threads is used.
+         */
+        public Builder<T> withExecutor(Executor executor) {
+            this.executor = Preconditions.checkNotNull(executor);
+            return this;
+        }
+
+        /**
+         * Builds the loader.
+         */
+        public BatchLoader<T> build() {
+            return new BatchLoader<>(this);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.gocardless;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gocardless.resources.Event;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Routes the events from your webhooks to the handlers you've registered for their resource
+ * type and action, handling events concurrently while keeping those about the same resource in
+ * order.
+ *
+ * Events are grouped by the ID of the resource they're about (for example the payment for a
+ * `payments` event), and each group is assigned to one of a fixed number of stripes. Events in
+ * the same stripe are handled one at a time, in the order they were dispatched, so two events
+ * about the same payment are never handled at the same time or out of order, while events about
+ * different resources can be handled in parallel on the executor.
+ *
+ * <pre>
+ * EventDispatcher dispatcher = EventDispatcher.newBuilder()
+ *         .on(Event.ResourceType.PAYMENTS, "failed", new EventDispatcher.Handler() {
+ *             public void handle(Event event) {
+ *                 markInvoiceUnpaid(event.getLinks().getPayment());
+ *             }
+ *         })
+ *         .withExecutor(Executors.newFixedThreadPool(8))
+ *         .build();
+ *
+ * // In your webhook handler
+ * dispatcher.dispatch(Webhook.parse(requestBody, signatureHeader, webhookEndpointSecret)).get();
+ * </pre>
+ *
+ * Waiting for the returned future before responding to the webhook means that GoCardless will
+ * send it again if any handler fails.
+ */
+public class EventDispatcher {
+    private static final String ANY_ACTION = "*";
+    private final Map<String, Route> routes;
+    // Keyed by identity, so that a handler registered for several routes has one set of
+    // measurements, whatever its equals method does.
+    private final Map<Handler, HandlerStats> handlerStats;
+    private final Stripe[] stripes;
+
+    private EventDispatcher(Builder builder) {
+        Map<Handler, HandlerStats> handlerStats = new IdentityHashMap<>();
+        ImmutableMap.Builder<String, Route> routes = ImmutableMap.builder();
+        for (Map.Entry<String, List<Handler>> entry : builder.handlers.entrySet()) {
+            ImmutableList.Builder<StatsHandler> handlers = ImmutableList.builder();
+            for (Handler handler : entry.getValue()) {
+                HandlerStats stats = handlerStats.get(handler);
+                if (stats == null) {
+                    stats = new HandlerStats();
+                    handlerStats.put(handler, stats);
+                }
+                handlers.add(new StatsHandler(handler, stats));
+            }
+            routes.put(entry.getKey(), new Route(handlers.build()));
+        }
+        this.routes = routes.build();
+        this.handlerStats = Collections.unmodifiableMap(handlerStats);
+        this.stripes = new Stripe[builder.stripes];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(builder.executor);
+        }
+    }
+
+    /**
+     * Returns a builder for a dispatcher.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Dispatches the events from a webhook to their handlers.
+     *
+     * @param events the events, as returned by {@link Webhook#parse}
+     * @return a future which completes once every event has been handled. If any handler
+     *     failed, it fails with the exception for the first of those events, but only once the
+     *     other events have been handled too. Events after a failed one are still handled.
+     */
+    public ListenableFuture<Void> dispatch(Iterable<Event> events) {
+        final List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (Event event : events) {
+            futures.add(dispatch(event));
+        }
+        return Futures.whenAllComplete(futures).call(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (ListenableFuture<Void> future : futures) {
+                    Futures.getDone(future);
+                }
+                return null;
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Dispatches a single event to its handlers. Events without any handlers are ignored.
+     *
+     * @param event the event
+     * @return a future which completes once the event has been handled, or fails if a handler
+     *     threw an exception or the executor rejected the event
+     */
+    public ListenableFuture<Void> dispatch(Event event) {
+        List<Route> matching = new ArrayList<>(2);
+        if (event.getResourceType() != null) {
+            String type = routeName(event.getResourceType());
+            addRoute(matching, type + "/" + event.getAction());
+            addRoute(matching, type + "/" + ANY_ACTION);
+        }
+        if (matching.isEmpty()) {
+            return Futures.immediateFuture(null);
+        }
+        Task task = new Task(event, matching);
+        stripeFor(event).submit(task);
+        return task.future;
+    }
+
+    /**
+     * Returns the measurements for each registered handler. A handler registered for several
+     * resource types or actions has a single set of measurements covering all of them.
+     */
+    public Map<Handler, HandlerStats> getHandlerStats() {
+        return handlerStats;
+    }
+
+    private void addRoute(List<Route> matching, String name) {
+        Route route = routes.get(name);
+        if (route != null) {
+            matching.add(route);
+        }
+    }
+
+    private Stripe stripeFor(Event event) {
+        String key = resourceId(event);
+        if (key == null) {
+            key = event.getId();
+        }
+        int hash = key == null ? 0 : key.hashCode();
+        // Spread the bits, as IDs often share a prefix and differ only at the end.
+        hash ^= (hash >>> 16);
+        return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    private static String resourceId(Event event) {
+        Event.Links links = event.getLinks();
+        if (links == null) {
+            return null;
+        }
+        switch (event.getResourceType()) {
+            case CREDITORS:
+                return links.getCreditor();
+            case INSTALMENT_SCHEDULES:
+                return links.getInstalmentSchedule();
+            case MANDATES:
+                return links.getMandate();
+            case PAYMENTS:
+                return links.getPayment();
+            case PAYOUTS:
+                return links.getPayout();
+            case REFUNDS:
+                return links.getRefund();
+            case SUBSCRIPTIONS:
+                return links.getSubscription();
+            case ORGANISATIONS:
+                return links.getOrganisation();
+            default:
+                return null;
+        }
+    }
+
+    private static String routeName(Event.ResourceType resourceType) {
+        return resourceType.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Handles an event.
+     */
+    public interface Handler {
+        /**
+         * Handles an event. This is called on the dispatcher's executor, and never at the same
+         * time as another handler for an event about the same resource.
+         *
+         * @throws Exception to fail the future returned by {@link #dispatch}
+         */
+        void handle(Event event) throws Exception;
+    }
+
+    /**
+     * The measurements for a single handler. These are live, so successive calls may return
+     * different values.
+     */
+    public static final class HandlerStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private HandlerStats() {}
+
+        /**
+         * Returns the number of events handled, including those whose handler failed.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns the number of events whose handler threw an exception.
+         */
+        public long getFailureCount() {
+            return failureCount.get();
+        }
+
+        /**
+         * Returns the mean time taken to handle an event, in nanoseconds.
+         */
+        public long getMeanLatencyNanos() {
+            long count = this.count.get();
+            return count == 0 ? 0 : totalNanos.get() / count;
+        }
+
+        /**
+         * Returns the longest time taken to handle an event, in nanoseconds.
+         */
+        public long getMaxLatencyNanos() {
+            return maxNanos.get();
+        }
+
+        private void record(long durationNanos, boolean failed) {
+            count.incrementAndGet();
+            if (failed) {
+                failureCount.incrementAndGet();
+            }
+            totalNanos.addAndGet(durationNanos);
+            long max = maxNanos.get();
+            while (durationNanos > max && !maxNanos.compareAndSet(max, durationNanos)) {
+                max = maxNanos.get();
+            }
+        }
+    }
+
+    private static final class Route {
+        private final List<StatsHandler> handlers;
+
+        Route(List<StatsHandler> handlers) {
+            this.handlers = handlers;
+        }
+
+        void handle(Event event) throws Exception {
+            for (StatsHandler handler : handlers) {
+                handler.handle(event);
+            }
+        }
+    }
+
+    /**
+     * A registered handler, and the measurements it records into.
+     */
+    private static final class StatsHandler {
+        private final Handler handler;
+        private final HandlerStats stats;
+
+        StatsHandler(Handler handler, HandlerStats stats) {
+            this.handler = handler;
+            this.stats = stats;
+        }
+
+        void handle(Event event) throws Exception {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                handler.handle(event);
+                failed = false;
+            } finally {
+                stats.record(System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    /**
+     * An event waiting to be handled, and the future completed once it has been.
+     */
+    private static final class Task implements Runnable {
+        private final Event event;
+        private final List<Route> routes;
+        private final SettableFuture<Void> future = SettableFuture.create();
+
+        Task(Event event, List<Route> routes) {
+            this.event = event;
+            this.routes = routes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Route route : routes) {
+                    route.handle(event);
+                }
+                future.set(null);
+            } catch (Throwable t) {
+                future.setException(t);
+            }
+        }
+    }
+
+    /**
+     * Runs tasks on an executor one at a time, in the order they were submitted.
+     */
+    private static final class Stripe implements Runnable {
+        private final Executor executor;
+        private final Queue<Task> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        Stripe(Executor executor) {
+            this.executor = executor;
+        }
+
+        void submit(Task task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                // Tasks submitted by other threads may have queued up behind this one, relying
+                // on it to run them, so fail all of them rather than leave them waiting.
+                List<Task> rejected;
+                synchronized (tasks) {
+                    rejected = new ArrayList<>(tasks);
+                    tasks.clear();
+                    running = false;
+                }
+                for (Task dropped : rejected) {
+                    dropped.future.setException(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link EventDispatcher}.
+     */
+    public static final class Builder {
+        private final Map<String, List<Handler>> handlers = new LinkedHashMap<>();
+        private Executor executor = MoreExecutors.directExecutor();
+        private int stripes = 64;
+
+        private Builder() {}
+
+        /**
+         * Registers a handler for events about a type of resource with the given action.
+         * Several handlers can be registered for the same events, and are called in the order
+         * they were registered.
+         *
+         * @param resourceType the type of resource
+         * @param action the action, for example `confirmed`
+         * @param handler the handler
+         */
+        public Builder on(Event.ResourceType resourceType, String action, Handler handler) {
+            Preconditions.checkNotNull(resourceType);
+            Preconditions.checkNotNull(action);
+            Preconditions.checkNotNull(handler);
+            String name = routeName(resourceType) + "/" + action;
+            List<Handler> route = handlers.get(name);
+            if (route == null) {
+                route = new ArrayList<>();
+                handlers.put(name, route);
+            }
+            route.add(handler);
+            return this;
+        }
+
+        /**
+         * Registers a handler for every event about a type of resource, whatever its action.
+         * These are called after any handlers for the event's specific action.
+         *
+         * @param resourceType the type of resource
+         * @param handler the handler
+         */
+        public Builder on(Event.ResourceType resourceType, Handler handler) {
+            return on(resourceType, ANY_ACTION, handler);
+        }
+
+        /**
+         * Configures the executor on which handlers are called. By default, they're called on
+         * the thread which dispatches the events, so events are handled one at a time.
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = Preconditions.checkNotNull(executor);
+            return this;
+        }
+
+        /**
+         * Configures the number of stripes events are divided between, which limits how many
+         * can be handled at once. Events about different resources may share a stripe, and so
+         * wait for each other. Defaults to 64.
+         */
+        public Builder withStripes(int stripes) {
+            Preconditions.checkArgument(stripes > 0, "stripes must be positive");
+            this.stripes = stripes;
+            return this;
+        }
+
+        /**
+         * Builds the dispatcher.
+         */
+        public EventDispatcher build() {
+            return new EventDispatcher(this);
+        }
+    }
+}
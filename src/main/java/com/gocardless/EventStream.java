@@ -0,0 +1,423 @@
+package com.gocardless;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.gocardless.http.ListResponse;
+import com.gocardless.resources.Event;
+import com.gocardless.services.EventService.EventListRequest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the events in your account in the order they happened, passing them to a handler in
+ * batches, and records how far it has got so that it carries on from the same place after a
+ * restart.
+ *
+ * After each batch is handled, the ID of its newest event is saved to a {@link CheckpointStore}.
+ * The next batch is the events created after
+ * that one, so a stream which is stopped and started again neither misses nor re-reads any
+ * events. If the handler throws an exception, or the process dies before the checkpoint is
+ * saved, the same batch is delivered again, so handlers should cope with seeing an event more
+ * than once.
+ *
+ * <pre>
+ * EventStream stream = EventStream.newBuilder(client,
+ *         EventStream.fileCheckpointStore(Paths.get("/var/lib/app/events")),
+ *         new EventStream.Handler() {
+ *             public void handle(List&lt;Event&gt; events) {
+ *                 for (Event event : events) {
+ *                     process(event);
+ *                 }
+ *             }
+ *         })
+ *         .withPollInterval(10, TimeUnit.SECONDS)
+ *         .build();
+ * executor.execute(stream);
+ * ...
+ * stream.stop();
+ * </pre>
+ *
+ * When there's no checkpoint yet, the stream starts with the most recent batch of events.
+ *
+ * With {@link Builder#withTailing}, the stream adapts to how quickly events are arriving: it
+ * polls less often while there's nothing new, and fetches bigger batches (up to 500 events)
+ * while it's behind. {@link #getLagMillis} reports how far behind it is.
+ */
+public class EventStream implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventStream.class);
+    private static final int MAX_BATCH_SIZE = 500;
+    // The shortest wait after a failure, so that a zero poll interval doesn't retry in a loop.
+    private static final long MIN_FAILURE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final GoCardlessClient client;
+    private final Handler handler;
+    private final CheckpointStore checkpointStore;
+    private final EventListRequest.ResourceType resourceType;
+    private final int batchSize;
+    private final long pollIntervalNanos;
+    private final long maxPollIntervalNanos;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    // Only changed by the thread running the stream, but read by others.
+    private volatile int currentBatchSize;
+    private volatile long currentPollIntervalNanos;
+    private volatile long lagMillis;
+
+    private EventStream(Builder builder) {
+        this.client = builder.client;
+        this.handler = builder.handler;
+        this.checkpointStore = builder.checkpointStore;
+        this.resourceType = builder.resourceType;
+        this.batchSize = builder.batchSize;
+        this.pollIntervalNanos = builder.pollIntervalNanos;
+        this.maxPollIntervalNanos = builder.maxPollIntervalNanos;
+        this.currentBatchSize = batchSize;
+        this.currentPollIntervalNanos = pollIntervalNanos;
+    }
+
+    /**
+     * Returns a builder for a stream which reads events using the given client.
+     *
+     * @param client the client to list events with
+     * @param checkpointStore where the stream records how far it has got. Each stream needs its
+     *     own store, or the streams will skip each other's events.
+     * @param handler the handler to pass each batch of events to
+     */
+    public static Builder newBuilder(GoCardlessClient client, CheckpointStore checkpointStore,
+            Handler handler) {
+        return new Builder(client, checkpointStore, handler);
+    }
+
+    /**
+     * Returns a checkpoint store which keeps the checkpoint in the given file. The file is
+     * replaced atomically each time the checkpoint is saved, so it's never left half-written.
+     *
+     * @param path the file to keep the checkpoint in. Its directory must exist.
+     */
+    public static CheckpointStore fileCheckpointStore(Path path) {
+        return new FileCheckpointStore(path);
+    }
+
+    /**
+     * Fetches and handles the next batch of events, if there are any, and saves the checkpoint.
+     *
+     * @return the number of events handled
+     * @throws Exception if the events couldn't be fetched, the handler threw an exception, or
+     *     the checkpoint couldn't be loaded or saved. The batch will be delivered again by the
+     *     next call.
+     */
+    public int poll() throws Exception {
+        return poll(currentBatchSize);
+    }
+
+    private int poll(int limit) throws Exception {
+        String checkpoint = checkpointStore.load();
+        EventListRequest<ListResponse<Event>> request = client.events().list().withLimit(limit);
+        if (resourceType != null) {
+            request.withResourceType(resourceType);
+        }
+        // Events are listed newest first, so the events after the checkpoint come before it.
+        if (checkpoint != null) {
+            request.withBefore(checkpoint);
+        }
+        List<Event> events = request.execute().getItems();
+        if (events.isEmpty()) {
+            lagMillis = 0;
+            return 0;
+        }
+        List<Event> batch = Lists.reverse(events);
+        handler.handle(batch);
+        Event newest = batch.get(batch.size() - 1);
+        checkpointStore.save(newest.getId());
+        lagMillis = lagMillis(newest);
+        return batch.size();
+    }
+
+    /**
+     * Handles events until {@link #stop} is called. Whenever there are no more events to read,
+     * the stream waits for the poll interval before trying again. If reading or handling them
+     * fails, it waits for the poll interval or a second, whichever is longer.
+     */
+    @Override
+    public void run() {
+        while (stopped.getCount() > 0) {
+            int limit = currentBatchSize;
+            long waitNanos;
+            try {
+                waitNanos = adapt(poll(limit), limit);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to handle events, will retry", e);
+                waitNanos = Math.max(currentPollIntervalNanos, MIN_FAILURE_WAIT_NANOS);
+            }
+            if (waitNanos > 0 && !await(waitNanos)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the stream once the batch currently being handled, if any, is finished.
+     */
+    public void stop() {
+        stopped.countDown();
+    }
+
+    /**
+     * Returns how far behind the stream was after its last poll: the time between the newest
+     * event it had handled being created and that event being handled, in milliseconds. This
+     * is 0 once the stream has caught up, and -1 if the event's creation time was unreadable.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Returns the number of events the stream will ask for in its next poll.
+     */
+    public int getCurrentBatchSize() {
+        return currentBatchSize;
+    }
+
+    /**
+     * Returns how long the stream waits between polls which find no new events, in
+     * milliseconds.
+     */
+    public long getCurrentPollIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(currentPollIntervalNanos);
+    }
+
+    /**
+     * Adjusts the batch size and poll interval after a poll, and returns how long to wait
+     * before the next one.
+     *
+     * @param handled the number of events the poll handled
+     * @param limit the number of events the poll asked for
+     */
+    long adapt(int handled, int limit) {
+        boolean full = handled >= limit;
+        if (maxPollIntervalNanos == 0) {
+            return full ? 0 : pollIntervalNanos;
+        }
+        if (full) {
+            // Behind, so catch up in bigger batches, without waiting.
+            currentBatchSize = Math.min(MAX_BATCH_SIZE, limit * 2);
+            currentPollIntervalNanos = pollIntervalNanos;
+            return 0;
+        }
+        if (handled == 0) {
+            // Nothing happening, so back off.
+            currentPollIntervalNanos = Math.min(maxPollIntervalNanos,
+                    currentPollIntervalNanos * 2);
+        } else {
+            currentPollIntervalNanos = pollIntervalNanos;
+        }
+        if (handled < limit / 2) {
+            currentBatchSize = Math.max(batchSize, limit / 2);
+        }
+        return currentPollIntervalNanos;
+    }
+
+    private static long lagMillis(Event event) {
+        if (event.getCreatedAt() == null) {
+            return -1;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            long createdAt = format.parse(event.getCreatedAt()).getTime();
+            return Math.max(0, System.currentTimeMillis() - createdAt);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Waits for the given time, returning false if the stream was stopped in the meantime.
+     */
+    private boolean await(long nanos) {
+        try {
+            return !stopped.await(nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Handles batches of events.
+     */
+    public interface Handler {
+        /**
+         * Handles a batch of events, oldest first.
+         *
+         * @throws Exception to have the batch delivered again
+         */
+        void handle(List<Event> events) throws Exception;
+    }
+
+    /**
+     * Stores the ID of the last event handled by a stream.
+     */
+    public interface CheckpointStore {
+        /**
+         * Returns the ID of the last event handled, or null if there isn't one.
+         */
+        String load() throws IOException;
+
+        /**
+         * Saves the ID of the last event handled. Once this returns, the stream will start
+         * after this event, even after a restart.
+         */
+        void save(String eventId) throws IOException;
+    }
+
+    private static final class FileCheckpointStore implements CheckpointStore {
+        private final Path path;
+
+        FileCheckpointStore(Path path) {
+            this.path = path.toAbsolutePath();
+        }
+
+        @Override
+        public String load() throws IOException {
+            try {
+                String eventId = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                return eventId.trim().isEmpty() ? null : eventId.trim();
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void save(String eventId) throws IOException {
+            // Write to a temporary file beside the real one, then move it into place, so that
+            // a crash leaves either the old checkpoint or the new one.
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(),
+                    ".tmp");
+            try {
+                try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                    out.write(eventId.getBytes(StandardCharsets.UTF_8));
+                    out.getFD().sync();
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            syncDirectory(path.getParent());
+        }
+
+        /**
+         * Flushes the directory, so that the move survives a crash too.
+         */
+        private static void syncDirectory(Path directory) throws IOException {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (AccessDeniedException e) {
+                // Directories can't be opened on some platforms, such as Windows.
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link EventStream}.
+     */
+    public static final class Builder {
+        private final GoCardlessClient client;
+        private final CheckpointStore checkpointStore;
+        private final Handler handler;
+        private EventListRequest.ResourceType resourceType;
+        private int batchSize = 50;
+        private long pollIntervalNanos = TimeUnit.SECONDS.toNanos(10);
+        private long maxPollIntervalNanos;
+
+        private Builder(GoCardlessClient client, CheckpointStore checkpointStore,
+                Handler handler) {
+            this.client = Preconditions.checkNotNull(client);
+            this.checkpointStore = Preconditions.checkNotNull(checkpointStore);
+            this.handler = Preconditions.checkNotNull(handler);
+        }
+
+        /**
+         * Configures the stream to only read events about one type of resource.
+         */
+        public Builder withResourceType(EventListRequest.ResourceType resourceType) {
+            this.resourceType = resourceType;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of events in each batch, between 1 and 500. Defaults
+         * to 50.
+         */
+        public Builder withBatchSize(int batchSize) {
+            Preconditions.checkArgument(batchSize > 0 && batchSize <= 500,
+                    "batchSize must be between 1 and 500");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Configures how long {@link EventStream#run} waits before checking for new events,
+         * once it has read all of the existing ones. Defaults to 10 seconds.
+         *
+         * @param pollInterval how long to wait
+         * @param timeUnit the unit of pollInterval
+         */
+        public Builder withPollInterval(long pollInterval, TimeUnit timeUnit) {
+            Preconditions.checkArgument(pollInterval >= 0, "pollInterval must not be negative");
+            this.pollIntervalNanos = timeUnit.toNanos(pollInterval);
+            return this;
+        }
+
+        /**
+         * Configures the stream to adapt to how quickly events are arriving. While polls find
+         * no new events, the poll interval doubles, up to the given maximum, and it drops back
+         * to the interval set with {@link #withPollInterval} as soon as events arrive. While
+         * batches come back full, the batch size doubles, up to 500, and it shrinks back
+         * towards the size set with {@link #withBatchSize} once the stream has caught up.
+         *
+         * The poll interval must be positive, and the maximum longer than it, which is checked
+         * when the stream is built.
+         *
+         * @param maxPollInterval the longest time to wait between polls
+         * @param timeUnit the unit of maxPollInterval
+         */
+        public Builder withTailing(long maxPollInterval, TimeUnit timeUnit) {
+            Preconditions.checkArgument(maxPollInterval > 0, "maxPollInterval must be positive");
+            this.maxPollIntervalNanos = timeUnit.toNanos(maxPollInterval);
+            return this;
+        }
+
+        /**
+         * Builds the stream.
+         */
+        public EventStream build() {
+            if (maxPollIntervalNanos > 0) {
+                // The interval doubles from the poll interval, so it would never grow from 0.
+                Preconditions.checkArgument(pollIntervalNanos > 0,
+                        "pollInterval must be positive when tailing");
+                Preconditions.checkArgument(maxPollIntervalNanos > pollIntervalNanos,
+                        "maxPollInterval must be longer than pollInterval");
+            }
+            return new EventStream(this);
+        }
+    }
+}
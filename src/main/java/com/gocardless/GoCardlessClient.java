@@ -1,15 +1,27 @@
 package com.gocardless;
 
 import java.net.Proxy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLSocketFactory;
 
+import com.gocardless.http.BatchExecutor;
+import com.gocardless.http.ClientMetrics;
 import com.gocardless.http.HttpClient;
+import com.gocardless.http.ResourceCache;
+import com.gocardless.http.RetryPolicy;
+import com.gocardless.http.WebhookParser;
 import com.gocardless.services.*;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
 import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
 
 /**
  * Entry point into the client.
@@ -42,6 +54,22 @@ public class GoCardlessClient {
         private Proxy proxy;
         private SSLSocketFactory sslSocketFactory;
         private boolean errorOnIdempotencyConflict;
+        private Executor asyncExecutor;
+        private Integer maxRequestsPerHost;
+        private Integer maxRequests;
+        private int pagePrefetchDepth;
+        private OkHttpClient okHttpClient;
+        private ConnectionPool connectionPool;
+        private Long connectTimeoutMillis;
+        private Long readTimeoutMillis;
+        private Long writeTimeoutMillis;
+        private Boolean http2Enabled;
+        private RetryPolicy retryPolicy;
+        private boolean rateLimited;
+        private ResourceCache resourceCache;
+        private ClientMetrics metrics;
+        private boolean preloadAdapters;
+        private boolean coalesceRequests;
 
         /**
          * Constructor.  Users of this library will not need to access this constructor directly -
@@ -106,15 +134,261 @@ public class GoCardlessClient {
             return this;
         }
 
+        /**
+         * Configures the executor on which responses to asynchronous requests (made with
+         * `executeAsync`) are parsed. If not set, a pool of daemon threads shared by every client
+         * is used.
+         *
+         * @param asyncExecutor the executor on which to parse asynchronous responses
+         */
+        public Builder withAsyncExecutor(Executor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of asynchronous requests (including those made by
+         * {@link GoCardlessClient#batch()}) which can be in flight to the API at once.
+         * Defaults to 5.
+         *
+         * @param maxRequestsPerHost the maximum number of concurrent asynchronous requests
+         */
+        public Builder withMaxRequestsPerHost(int maxRequestsPerHost) {
+            Preconditions.checkArgument(maxRequestsPerHost > 0,
+                    "maxRequestsPerHost must be positive");
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Configures how many pages are fetched in the background when iterating through
+         * all of the items in a collection (using `all()`). The next page is requested as
+         * soon as the current one arrives, so that iteration need not wait on the network
+         * when processing each item takes longer than fetching a page. Defaults to 0, which
+         * fetches each page only once the previous one has been consumed.
+         *
+         * @param pagePrefetchDepth the number of pages to fetch ahead
+         */
+        public Builder withPagePrefetch(int pagePrefetchDepth) {
+            Preconditions.checkArgument(pagePrefetchDepth >= 0,
+                    "pagePrefetchDepth must not be negative");
+            this.pagePrefetchDepth = pagePrefetchDepth;
+            return this;
+        }
+
+        /**
+         * Configures how requests which are safe to retry are retried after network errors,
+         * rate limiting and server errors. Defaults to {@link RetryPolicy#DEFAULT}. The policy
+         * can also be overridden for a single request with `withRetryPolicy`.
+         *
+         * @param retryPolicy the retry policy
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = Preconditions.checkNotNull(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Configures whether requests are paced to stay within the API's rate limit. If true,
+         * the client reads the `RateLimit-Remaining` and `RateLimit-Reset` headers of each
+         * response, and spreads the requests which remain evenly over the rest of the rate
+         * limit window, across all threads using this client. Defaults to false.
+         *
+         * @param rateLimited whether to pace requests
+         */
+        public Builder withRateLimiting(boolean rateLimited) {
+            this.rateLimited = rateLimited;
+            return this;
+        }
+
+        /**
+         * Configures a cache of resources fetched with `get(...).execute()`, so that
+         * resources which change rarely aren't fetched again on every call. Only the types
+         * of resource configured on the cache are cached. Disabled by default.
+         *
+         * @param resourceCache the cache to serve resources from
+         */
+        public Builder withResourceCache(ResourceCache resourceCache) {
+            this.resourceCache = Preconditions.checkNotNull(resourceCache);
+            return this;
+        }
+
+        /**
+         * Configures where measurements of the client's requests are recorded: latency,
+         * response size, parsing time, retries and idempotency conflicts for each endpoint,
+         * and the size of the connection pool. See {@link ClientMetrics}. By default,
+         * nothing is recorded. Requests are logged either way.
+         *
+         * @param metrics the metrics to record requests with
+         */
+        public Builder withMetrics(ClientMetrics metrics) {
+            this.metrics = Preconditions.checkNotNull(metrics);
+            return this;
+        }
+
+        /**
+         * Configures whether the client prepares to parse every type of resource when it's
+         * built. Otherwise, the library works out how to parse each type the first time it's
+         * returned, which adds to the time taken by the first request for each type. Set
+         * this to true where a quick first request matters more than a quick `build()`
+         * (for example, when building the client while a serverless function initialises).
+         * Preloading takes longer overall than parsing each type when it's first seen, since
+         * it prepares types which may never be returned, and it doesn't speed up any later
+         * responses. Defaults to false.
+         *
+         * @param preloadAdapters whether to prepare to parse every type of resource up front
+         */
+        public Builder withPreloadedAdapters(boolean preloadAdapters) {
+            this.preloadAdapters = preloadAdapters;
+            return this;
+        }
+
+        /**
+         * Configures whether identical requests to fetch a single resource (with the same URL
+         * and custom headers), made while one is already in flight, wait for and share its
+         * response rather than making another request. This saves requests when many threads
+         * look up the same resource at once. Defaults to false.
+         *
+         * Every caller sharing a request gets the same resource instance, so callers mustn't
+         * modify the resources they fetch (for example through their metadata maps), as the
+         * change would be seen by the others. If the request fails, they all get the same
+         * exception instance.
+         *
+         * @param coalesceRequests whether to share in-flight requests to fetch a resource
+         */
+        public Builder withRequestCoalescing(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of asynchronous requests which can be in flight at
+         * once, across all hosts. Defaults to 64.
+         *
+         * @param maxRequests the maximum number of concurrent asynchronous requests
+         */
+        public Builder withMaxRequests(int maxRequests) {
+            Preconditions.checkArgument(maxRequests > 0, "maxRequests must be positive");
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Configures the pool of connections to the API which are kept open for reuse.
+         * By default, OkHttp's shared pool is used, which keeps up to 5 idle connections alive
+         * for 5 minutes.
+         *
+         * @param maxIdleConnections the maximum number of idle connections to keep open
+         * @param keepAliveDuration how long to keep an idle connection open
+         * @param timeUnit the unit of keepAliveDuration
+         */
+        public Builder withConnectionPool(int maxIdleConnections, long keepAliveDuration,
+                TimeUnit timeUnit) {
+            this.connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration,
+                    timeUnit);
+            return this;
+        }
+
+        /**
+         * Configures the timeout for opening new connections. Defaults to 10 seconds.
+         *
+         * @param timeout the timeout, or 0 for no timeout
+         * @param timeUnit the unit of timeout
+         */
+        public Builder withConnectTimeout(long timeout, TimeUnit timeUnit) {
+            this.connectTimeoutMillis = timeUnit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Configures the timeout for reading from a connection. Defaults to 10 seconds.
+         *
+         * @param timeout the timeout, or 0 for no timeout
+         * @param timeUnit the unit of timeout
+         */
+        public Builder withReadTimeout(long timeout, TimeUnit timeUnit) {
+            this.readTimeoutMillis = timeUnit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Configures the timeout for writing to a connection. Defaults to 10 seconds.
+         *
+         * @param timeout the timeout, or 0 for no timeout
+         * @param timeUnit the unit of timeout
+         */
+        public Builder withWriteTimeout(long timeout, TimeUnit timeUnit) {
+            this.writeTimeoutMillis = timeUnit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Configures whether the client may use HTTP/2 when the server supports it, which
+         * allows many concurrent requests to share one connection. If false, only HTTP/1.1
+         * is used. By default, OkHttp's own preferences apply.
+         *
+         * @param http2Enabled whether HTTP/2 may be used
+         */
+        public Builder withHttp2Enabled(boolean http2Enabled) {
+            this.http2Enabled = http2Enabled;
+            return this;
+        }
+
+        /**
+         * Configures a pre-configured OkHttpClient to base the client's HTTP client on.
+         * The supplied instance is copied rather than modified, and any other options set on
+         * this builder are applied to the copy.
+         *
+         * @param okHttpClient the OkHttpClient to copy
+         */
+        public Builder withOkHttpClient(OkHttpClient okHttpClient) {
+            this.okHttpClient = okHttpClient;
+            return this;
+        }
+
         /**
          * Builds a configured instance of the GoCardlessClient
          */
         public GoCardlessClient build() {
-            OkHttpClient rawClient = new OkHttpClient();
-            rawClient.setProxy(proxy);
-            rawClient.setSslSocketFactory(sslSocketFactory);
-            HttpClient client =
-                    new HttpClient(accessToken, baseUrl, rawClient, errorOnIdempotencyConflict);
+            OkHttpClient rawClient =
+                    okHttpClient != null ? okHttpClient.clone() : new OkHttpClient();
+            if (proxy != null) {
+                rawClient.setProxy(proxy);
+            }
+            if (sslSocketFactory != null) {
+                rawClient.setSslSocketFactory(sslSocketFactory);
+            }
+            if (maxRequestsPerHost != null || maxRequests != null) {
+                // Copies of an OkHttpClient share its Dispatcher, so we give ours its own
+                // (backed by the same threads) rather than changing the original's limits.
+                Dispatcher original = rawClient.getDispatcher();
+                Dispatcher dispatcher = new Dispatcher(original.getExecutorService());
+                dispatcher.setMaxRequests(maxRequests != null ? maxRequests : Math.max(
+                        original.getMaxRequests(), maxRequestsPerHost));
+                dispatcher.setMaxRequestsPerHost(maxRequestsPerHost != null
+                        ? maxRequestsPerHost : original.getMaxRequestsPerHost());
+                rawClient.setDispatcher(dispatcher);
+            }
+            if (connectionPool != null) {
+                rawClient.setConnectionPool(connectionPool);
+            }
+            if (connectTimeoutMillis != null) {
+                rawClient.setConnectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (readTimeoutMillis != null) {
+                rawClient.setReadTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (writeTimeoutMillis != null) {
+                rawClient.setWriteTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (http2Enabled != null) {
+                rawClient.setProtocols(http2Enabled
+                        ? ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : ImmutableList.of(Protocol.HTTP_1_1));
+            }
+            HttpClient client = new HttpClient(accessToken, baseUrl, rawClient,
+                    errorOnIdempotencyConflict, asyncExecutor, pagePrefetchDepth, retryPolicy,
+                    rateLimited, resourceCache, metrics, preloadAdapters, coalesceRequests);
             return new GoCardlessClient(client);
         }
     }
@@ -275,6 +549,24 @@ public class GoCardlessClient {
         return subscriptions;
     }
 
+    /**
+     * Returns a thread-safe parser for webhooks, which shares this client's configuration
+     * (such as {@link Builder#withPreloadedAdapters(boolean)}). Pass it to
+     * {@link Webhook#parse(String, String, String, WebhookParser)}, or to any of the other
+     * `Webhook` methods which take a parser.
+     */
+    public WebhookParser webhookParser() {
+        return httpClient.getWebhookParser();
+    }
+
+    /**
+     * Returns an executor for creating resources in bulk, by executing many idempotent
+     * create requests concurrently.
+     */
+    public BatchExecutor batch() {
+        return new BatchExecutor();
+    }
+
     /**
      * Available environments for this client.
      */
@@ -0,0 +1,345 @@
+package com.gocardless;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gocardless.resources.Event;
+import com.gocardless.resources.Mandate;
+import com.gocardless.resources.Payment;
+import com.gocardless.resources.Refund;
+import com.gocardless.resources.Subscription;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A local, bounded store of mandates, payments, subscriptions and refunds, kept up to date by
+ * the events from your webhooks, so that looking up their status doesn't need a request each
+ * time.
+ *
+ * Each resource is fetched from the API the first time it's looked up, and then served from
+ * memory until an event about it is passed to {@link #apply}. Concurrent lookups of a
+ * resource which isn't in the store share a single request. When an event arrives, the
+ * resource is either dropped, so that it's fetched again the next time it's looked up, or (if
+ * background refresh is enabled) fetched again straight away, while lookups carry on seeing the
+ * previous version until the new one arrives. If an event arrives while its resource is being
+ * fetched, the response may predate the change, so it's discarded and the resource fetched
+ * again, up to three times, after which the latest response is kept.
+ *
+ * <pre>
+ * ResourceStore store = ResourceStore.newBuilder(client)
+ *         .withMaximumSize(100000)
+ *         .withMaximumAge(1, TimeUnit.HOURS)
+ *         .build();
+ *
+ * // In your webhook handler
+ * store.apply(Webhook.parse(requestBody, signatureHeader, webhookEndpointSecret));
+ *
+ * // Anywhere else
+ * Mandate.Status status = store.getMandate("MD123").getStatus();
+ * </pre>
+ *
+ * If a webhook is lost, the store won't see the change, so it's worth bounding how long a
+ * resource can be served with {@link Builder#withMaximumAge}.
+ */
+public class ResourceStore {
+    // The number of times a resource is fetched again because it changed while being fetched.
+    private static final int MAX_REFETCHES = 3;
+    private final Store<Mandate> mandates;
+    private final Store<Payment> payments;
+    private final Store<Subscription> subscriptions;
+    private final Store<Refund> refunds;
+    private final boolean backgroundRefresh;
+
+    private ResourceStore(final Builder builder) {
+        final GoCardlessClient client = builder.client;
+        this.backgroundRefresh = builder.backgroundRefresh;
+        this.mandates = new Store<Mandate>(builder) {
+            @Override
+            ListenableFuture<Mandate> fetch(String id) {
+                return client.mandates().get(id).executeAsync();
+            }
+        };
+        this.payments = new Store<Payment>(builder) {
+            @Override
+            ListenableFuture<Payment> fetch(String id) {
+                return client.payments().get(id).executeAsync();
+            }
+        };
+        this.subscriptions = new Store<Subscription>(builder) {
+            @Override
+            ListenableFuture<Subscription> fetch(String id) {
+                return client.subscriptions().get(id).executeAsync();
+            }
+        };
+        this.refunds = new Store<Refund>(builder) {
+            @Override
+            ListenableFuture<Refund> fetch(String id) {
+                return client.refunds().get(id).executeAsync();
+            }
+        };
+    }
+
+    /**
+     * Returns a builder for a store which fetches resources using the given client.
+     *
+     * @param client the client to fetch resources with
+     */
+    public static Builder newBuilder(GoCardlessClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Returns a mandate, fetching it if it isn't in the store.
+     *
+     * @throws com.gocardless.GoCardlessException if it had to be fetched, and that failed
+     */
+    public Mandate getMandate(String id) {
+        return mandates.get(id);
+    }
+
+    /**
+     * Returns a payment, fetching it if it isn't in the store.
+     *
+     * @throws com.gocardless.GoCardlessException if it had to be fetched, and that failed
+     */
+    public Payment getPayment(String id) {
+        return payments.get(id);
+    }
+
+    /**
+     * Returns a subscription, fetching it if it isn't in the store.
+     *
+     * @throws com.gocardless.GoCardlessException if it had to be fetched, and that failed
+     */
+    public Subscription getSubscription(String id) {
+        return subscriptions.get(id);
+    }
+
+    /**
+     * Returns a refund, fetching it if it isn't in the store.
+     *
+     * @throws com.gocardless.GoCardlessException if it had to be fetched, and that failed
+     */
+    public Refund getRefund(String id) {
+        return refunds.get(id);
+    }
+
+    /**
+     * Updates the store with the events from a webhook, marking the resources they're about
+     * as changed. Events about other types of resource are ignored.
+     *
+     * @param events the events, as returned by {@link Webhook#parse}
+     */
+    public void apply(Iterable<Event> events) {
+        for (Event event : events) {
+            apply(event);
+        }
+    }
+
+    /**
+     * Updates the store with a single event, marking the resource it's about as changed.
+     *
+     * @param event the event
+     */
+    public void apply(Event event) {
+        Event.Links links = event.getLinks();
+        if (event.getResourceType() == null || links == null) {
+            return;
+        }
+        // Every action on these resources records a change to them, so the action itself
+        // doesn't decide whether the resource needs fetching again.
+        switch (event.getResourceType()) {
+            case MANDATES:
+                mandates.changed(links.getMandate());
+                break;
+            case PAYMENTS:
+                payments.changed(links.getPayment());
+                break;
+            case SUBSCRIPTIONS:
+                subscriptions.changed(links.getSubscription());
+                break;
+            case REFUNDS:
+                refunds.changed(links.getRefund());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Removes every resource from the store.
+     */
+    public void invalidateAll() {
+        mandates.invalidateAll();
+        payments.invalidateAll();
+        subscriptions.invalidateAll();
+        refunds.invalidateAll();
+    }
+
+    /**
+     * Returns the number of resources in the store.
+     */
+    public long size() {
+        return mandates.cache.size() + payments.cache.size() + subscriptions.cache.size()
+                + refunds.cache.size();
+    }
+
+    /**
+     * The resources of one type, fetched with {@link #fetch}.
+     */
+    private abstract class Store<T> {
+        private final LoadingCache<String, T> cache;
+        // Each change takes the next generation. A fetch which started before the latest
+        // change to its resource is discarded, because the cache ignores invalidations and
+        // refreshes while a resource is loading or reloading.
+        private final AtomicLong generation = new AtomicLong();
+        private final Cache<String, Long> changedAtGeneration;
+        private volatile long allChangedAtGeneration;
+
+        Store(Builder builder) {
+            CacheBuilder<Object, Object> cacheBuilder =
+                    CacheBuilder.newBuilder().maximumSize(builder.maximumSize);
+            if (builder.maximumAgeNanos != null) {
+                cacheBuilder.expireAfterWrite(builder.maximumAgeNanos, TimeUnit.NANOSECONDS);
+            }
+            this.cache = cacheBuilder.build(new CacheLoader<String, T>() {
+                @Override
+                public T load(String id) throws Exception {
+                    return fetchCurrent(id).get();
+                }
+
+                @Override
+                public ListenableFuture<T> reload(String id, T previous) {
+                    return fetchCurrent(id);
+                }
+            });
+            this.changedAtGeneration =
+                    CacheBuilder.newBuilder().maximumSize(builder.maximumSize).build();
+        }
+
+        abstract ListenableFuture<T> fetch(String id);
+
+        private ListenableFuture<T> fetchCurrent(String id) {
+            return fetchCurrent(id, 0);
+        }
+
+        /**
+         * Fetches a resource, fetching it again if it changes while being fetched, up to
+         * {@link #MAX_REFETCHES} times. After that, the latest response is used, so that a
+         * resource which never stops changing can still be looked up.
+         */
+        private ListenableFuture<T> fetchCurrent(final String id, final int refetches) {
+            final long started = generation.get();
+            return Futures.transformAsync(fetch(id), new AsyncFunction<T, T>() {
+                @Override
+                public ListenableFuture<T> apply(T resource) {
+                    if (refetches < MAX_REFETCHES && isChangedSince(id, started)) {
+                        return fetchCurrent(id, refetches + 1);
+                    }
+                    return Futures.immediateFuture(resource);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        private boolean isChangedSince(String id, long started) {
+            Long changed = changedAtGeneration.getIfPresent(id);
+            return allChangedAtGeneration > started || (changed != null && changed > started);
+        }
+
+        T get(String id) {
+            try {
+                return cache.get(id);
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                // Unwrap both the cache's exception and the future's.
+                Throwable cause = e.getCause();
+                if (cause instanceof ExecutionException) {
+                    cause = cause.getCause();
+                }
+                Throwables.throwIfUnchecked(cause);
+                throw new UncheckedExecutionException(cause);
+            }
+        }
+
+        void changed(String id) {
+            if (id == null) {
+                return;
+            }
+            changedAtGeneration.put(id, generation.incrementAndGet());
+            if (backgroundRefresh && cache.asMap().containsKey(id)) {
+                cache.refresh(id);
+            } else {
+                cache.invalidate(id);
+            }
+        }
+
+        void invalidateAll() {
+            allChangedAtGeneration = generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Builder for {@link ResourceStore}.
+     */
+    public static final class Builder {
+        private final GoCardlessClient client;
+        private long maximumSize = 10000;
+        private Long maximumAgeNanos;
+        private boolean backgroundRefresh;
+
+        private Builder(GoCardlessClient client) {
+            this.client = Preconditions.checkNotNull(client);
+        }
+
+        /**
+         * Configures the maximum number of resources of each type kept in the store, beyond
+         * which the least recently used are dropped. Defaults to 10000.
+         */
+        public Builder withMaximumSize(long maximumSize) {
+            Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Configures how long a resource is kept before it's fetched again, even if no event
+         * has arrived for it. By default, resources are kept until an event arrives.
+         *
+         * @param maximumAge how long to keep a resource
+         * @param timeUnit the unit of maximumAge
+         */
+        public Builder withMaximumAge(long maximumAge, TimeUnit timeUnit) {
+            Preconditions.checkArgument(maximumAge > 0, "maximumAge must be positive");
+            this.maximumAgeNanos = timeUnit.toNanos(maximumAge);
+            return this;
+        }
+
+        /**
+         * Configures whether resources are fetched again as soon as an event arrives for
+         * them (true), or only the next time they're looked up (false). Defaults to false.
+         * Either way, a resource is fetched at most once at a time.
+         */
+        public Builder withBackgroundRefresh(boolean backgroundRefresh) {
+            this.backgroundRefresh = backgroundRefresh;
+            return this;
+        }
+
+        /**
+         * Builds the store.
+         */
+        public ResourceStore build() {
+            return new ResourceStore(this);
+        }
+    }
+}
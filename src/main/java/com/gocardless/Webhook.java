@@ -1,19 +1,45 @@
 package com.gocardless;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.util.List;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import com.gocardless.errors.InvalidSignatureException;
+import com.gocardless.http.WebhookEventIterator;
 import com.gocardless.http.WebhookParser;
 import com.gocardless.resources.Event;
 
-import org.apache.commons.codec.digest.HmacAlgorithms;
-import org.apache.commons.codec.digest.HmacUtils;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Charsets.UTF_8;
 
 /**
  * Class containing a collection of functions for validating and parsing GoCardless webhooks
  */
 public class Webhook {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+    private static final ThreadLocal<Mac> MAC = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                return Mac.getInstance(HMAC_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        }
+    };
+
     private Webhook() {}
 
     /**
@@ -33,11 +59,30 @@ public class Webhook {
      */
     public static List<Event> parse(String requestBody, String signatureHeader,
             String webhookEndpointSecret) {
-        if (isValidSignature(requestBody, signatureHeader, webhookEndpointSecret)) {
-            return WebhookParser.parse(requestBody);
-        } else {
-            throw new InvalidSignatureException();
-        }
+        return parse(requestBody, signatureHeader, webhookEndpointSecret,
+                WebhookParser.shared());
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless using `isValidSignature`,
+     * and then parses it into events with the given parser (such as the one returned by
+     * {@link GoCardlessClient#webhookParser()}).
+     *
+     * @param requestBody the request body
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @param parser the parser to parse the events with
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the
+     *     signature header specified does not match the signature computed using the
+     *     request body and webhook endpoint secret
+     */
+    public static List<Event> parse(String requestBody, String signatureHeader,
+            String webhookEndpointSecret, WebhookParser parser) {
+        byte[] bytes = requestBody.getBytes(UTF_8);
+        return parse(bytes, 0, bytes.length, signatureHeader, webhookEndpointSecret, parser);
     }
 
     /**
@@ -54,9 +99,257 @@ public class Webhook {
      */
     public static boolean isValidSignature(String requestBody, String signatureHeader,
             String webhookEndpointSecret) {
-        String computedSignature =
-                new HmacUtils(HmacAlgorithms.HMAC_SHA_256, webhookEndpointSecret)
-                        .hmacHex(requestBody);
-        return MessageDigest.isEqual(signatureHeader.getBytes(), computedSignature.getBytes());
+        return isValidSignature(requestBody.getBytes(UTF_8), signatureHeader,
+                webhookEndpointSecret);
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, as
+     * {@link #isValidSignature(byte[], String, String)} does, and then parses it, reading
+     * the events straight from the request body's bytes.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     */
+    public static List<Event> parse(byte[] requestBody, String signatureHeader,
+            String webhookEndpointSecret) {
+        return parse(requestBody, signatureHeader, webhookEndpointSecret,
+                WebhookParser.shared());
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, and then parses it with the
+     * given parser, reading the events straight from the request body's bytes.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @param parser the parser to parse the events with
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     */
+    public static List<Event> parse(byte[] requestBody, String signatureHeader,
+            String webhookEndpointSecret, WebhookParser parser) {
+        return parse(requestBody, 0, requestBody.length, signatureHeader,
+                webhookEndpointSecret, parser);
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, and then returns an iterator
+     * which parses its events one at a time, as they're asked for. This suits webhooks
+     * containing many events, as each can be handled as soon as it's parsed, and only one is
+     * held in memory at a time.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @return an iterator over the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     */
+    public static WebhookEventIterator iterate(byte[] requestBody, String signatureHeader,
+            String webhookEndpointSecret) {
+        return iterate(requestBody, signatureHeader, webhookEndpointSecret,
+                WebhookParser.shared());
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, and then returns an iterator
+     * which parses its events one at a time with the given parser.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @param parser the parser to parse the events with
+     * @return an iterator over the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     */
+    public static WebhookEventIterator iterate(byte[] requestBody, String signatureHeader,
+            String webhookEndpointSecret, WebhookParser parser) {
+        if (!isValidSignature(requestBody, signatureHeader, webhookEndpointSecret)) {
+            throw new InvalidSignatureException();
+        }
+        return parser.iterateEvents(
+                new InputStreamReader(new ByteArrayInputStream(requestBody), UTF_8));
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, and then parses it, reading
+     * the events straight from the buffer. The buffer's position is not changed.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     */
+    public static List<Event> parse(ByteBuffer requestBody, String signatureHeader,
+            String webhookEndpointSecret) {
+        return parse(requestBody, signatureHeader, webhookEndpointSecret,
+                WebhookParser.shared());
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, and then parses it with the
+     * given parser, reading the events straight from the buffer. The buffer's position is not
+     * changed.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @param parser the parser to parse the events with
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     */
+    public static List<Event> parse(ByteBuffer requestBody, String signatureHeader,
+            String webhookEndpointSecret, WebhookParser parser) {
+        if (requestBody.hasArray()) {
+            return parse(requestBody.array(), requestBody.arrayOffset() + requestBody.position(),
+                    requestBody.remaining(), signatureHeader, webhookEndpointSecret, parser);
+        }
+        byte[] bytes = new byte[requestBody.remaining()];
+        requestBody.duplicate().get(bytes);
+        return parse(bytes, signatureHeader, webhookEndpointSecret, parser);
+    }
+
+    /**
+     * Reads a webhook's request body from a stream, validates that it was genuinely sent by
+     * GoCardless, and then parses it. The stream is read to the end, but not closed.
+     *
+     * @param requestBody the request body
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     * @throws IOException if the stream can't be read
+     */
+    public static List<Event> parse(InputStream requestBody, String signatureHeader,
+            String webhookEndpointSecret) throws IOException {
+        return parse(requestBody, signatureHeader, webhookEndpointSecret,
+                WebhookParser.shared());
+    }
+
+    /**
+     * Reads a webhook's request body from a stream, validates that it was genuinely sent by
+     * GoCardless, and then parses it with the given parser. The stream is read to the end, but
+     * not closed.
+     *
+     * @param requestBody the request body
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @param parser the parser to parse the events with
+     * @return the events included in the webhook
+     * @throws com.gocardless.errors.InvalidSignatureException if the signature is invalid
+     * @throws IOException if the stream can't be read
+     */
+    public static List<Event> parse(InputStream requestBody, String signatureHeader,
+            String webhookEndpointSecret, WebhookParser parser) throws IOException {
+        return parse(ByteStreams.toByteArray(requestBody), signatureHeader,
+                webhookEndpointSecret, parser);
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless by computing its signature
+     * over the raw bytes of the body, and comparing it with the signature included in the
+     * `Webhook-Signature` header in constant time.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @return whether the webhook's signature is valid
+     */
+    public static boolean isValidSignature(byte[] requestBody, String signatureHeader,
+            String webhookEndpointSecret) {
+        return isValidSignature(requestBody, 0, requestBody.length, signatureHeader,
+                webhookEndpointSecret);
+    }
+
+    /**
+     * Validates that a webhook was genuinely sent by GoCardless, as
+     * {@link #isValidSignature(byte[], String, String)} does. The buffer's position is not
+     * changed.
+     *
+     * @param requestBody the request body, as it was received
+     * @param signatureHeader the signature included in the request, found in the
+     *     `Webhook-Signature` header
+     * @param webhookEndpointSecret the webhook endpoint secret for your webhook endpoint,
+     *     as configured in your GoCardless Dashboard
+     * @return whether the webhook's signature is valid
+     */
+    public static boolean isValidSignature(ByteBuffer requestBody, String signatureHeader,
+            String webhookEndpointSecret) {
+        byte[] expected = decodeSignature(signatureHeader);
+        if (expected == null) {
+            return false;
+        }
+        Mac mac = initMac(webhookEndpointSecret);
+        mac.update(requestBody.duplicate());
+        return MessageDigest.isEqual(expected, mac.doFinal());
+    }
+
+    private static List<Event> parse(byte[] requestBody, int offset, int length,
+            String signatureHeader, String webhookEndpointSecret, WebhookParser parser) {
+        if (!isValidSignature(requestBody, offset, length, signatureHeader,
+                webhookEndpointSecret)) {
+            throw new InvalidSignatureException();
+        }
+        try (Reader reader = new InputStreamReader(
+                new ByteArrayInputStream(requestBody, offset, length), UTF_8)) {
+            return parser.parseEvents(reader);
+        } catch (IOException e) {
+            // Reading from an array never fails.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isValidSignature(byte[] requestBody, int offset, int length,
+            String signatureHeader, String webhookEndpointSecret) {
+        byte[] expected = decodeSignature(signatureHeader);
+        if (expected == null) {
+            return false;
+        }
+        Mac mac = initMac(webhookEndpointSecret);
+        mac.update(requestBody, offset, length);
+        return MessageDigest.isEqual(expected, mac.doFinal());
+    }
+
+    /**
+     * Returns the bytes of a hex-encoded signature, or null if it isn't valid hex.
+     */
+    private static byte[] decodeSignature(String signatureHeader) {
+        if (signatureHeader == null || !HEX.canDecode(signatureHeader)) {
+            return null;
+        }
+        return HEX.decode(signatureHeader);
+    }
+
+    private static Mac initMac(String webhookEndpointSecret) {
+        Mac mac = MAC.get();
+        try {
+            mac.init(new SecretKeySpec(webhookEndpointSecret.getBytes(UTF_8), HMAC_ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid webhook endpoint secret", e);
+        }
+        return mac;
     }
 }
@@ -14,6 +14,10 @@ public class MalformedResponseException extends GoCardlessException {
         this.responseBody = responseBody;
     }
 
+    /**
+     * Returns the body of the response, or null if the response was parsed as it was read
+     * (as is the case for successful responses).
+     */
     public String getResponseBody() {
         return responseBody;
     }
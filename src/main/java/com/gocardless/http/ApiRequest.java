@@ -1,10 +1,13 @@
 package com.gocardless.http;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
+import com.squareup.okhttp.Headers;
 import com.squareup.okhttp.HttpUrl;
 
 /**
@@ -18,6 +21,7 @@ abstract class ApiRequest<T> {
     // this serialization.
     private transient final HttpClient httpClient;
     private transient final Map<String, String> customHeaders;
+    private transient RetryPolicy retryPolicy;
 
     ApiRequest(HttpClient httpClient) {
         this.httpClient = httpClient;
@@ -55,9 +59,39 @@ abstract class ApiRequest<T> {
         return ImmutableMap.copyOf(this.customHeaders);
     }
 
-    protected Map<String, String> getHeaders() {
-        return this.getCustomHeaders();
-    };
+    // As with `addHeader`, subclasses expose this through a `withRetryPolicy` method.
+    protected final void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Adds this request's own headers to those being built for it, except for any which the
+     * client sets itself.
+     */
+    void addHeaders(Headers.Builder headers, Headers clientHeaders) {
+        for (Map.Entry<String, String> header : customHeaders.entrySet()) {
+            if (clientHeaders.get(header.getKey()) == null) {
+                headers.add(header.getKey(), header.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns whether this request has its own value for a header. As in OkHttp's `Headers`,
+     * header names are compared case-insensitively.
+     */
+    boolean hasCustomHeader(String headerName) {
+        for (String name : customHeaders.keySet()) {
+            if (name.equalsIgnoreCase(headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     protected abstract String getPathTemplate();
 
@@ -67,5 +101,6 @@ abstract class ApiRequest<T> {
 
     protected abstract boolean hasBody();
 
-    protected abstract T parseResponse(String responseBody, ResponseParser responseParser);
+    protected abstract T parseResponse(Reader responseBody, ResponseParser responseParser)
+            throws IOException;
 }
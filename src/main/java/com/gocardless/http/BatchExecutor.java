@@ -0,0 +1,164 @@
+package com.gocardless.http;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.*;
+
+/**
+ * Executes collections of {@link IdempotentPostRequest}s concurrently, with a bound on the
+ * number of requests in flight at any one time.
+ *
+ * Each request is given a fixed idempotency key before it is sent (unless one has already
+ * been set), so any requests which fail can be resubmitted without risk of creating a
+ * resource twice. The key is stored on the request object itself, so executing the same
+ * request objects again sends the same keys, and the API returns the resources created the
+ * first time rather than creating new ones. To create further resources, build new requests.
+ */
+public class BatchExecutor {
+    /**
+     * The default number of requests in flight at once, matching OkHttp's default limit on
+     * concurrent requests to a single host.
+     */
+    public static final int DEFAULT_CONCURRENCY = 5;
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * Constructor.  Users of this library should have no need to call this - an instance
+     * of this class can be obtained by calling
+     * {@link com.gocardless.GoCardlessClient#batch() }.
+     */
+    public BatchExecutor() {}
+
+    /**
+     * Configures the maximum number of requests in flight at once.  Note that OkHttp also
+     * limits the number of concurrent requests to a single host - see
+     * {@link com.gocardless.GoCardlessClient.Builder#withMaxRequestsPerHost(int)}.
+     *
+     * @param concurrency the maximum number of requests in flight at once
+     */
+    public BatchExecutor withConcurrency(int concurrency) {
+        Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Executes the given requests, blocking until all of them have completed.
+     *
+     * Returns one result per request, in the order that the requests were supplied. Any
+     * request without an idempotency key is given one, as described above.
+     */
+    public <T> List<BatchResult<T>> execute(
+            Collection<? extends IdempotentPostRequest<T>> requests) {
+        return Futures.getUnchecked(executeAsync(requests));
+    }
+
+    /**
+     * Executes the given requests asynchronously.
+     *
+     * Returns a future which completes with one result per request, in the order that the
+     * requests were supplied, once all of them have completed.  The future never fails due to
+     * an individual request failing - see {@link BatchResult#getException()}. Any request
+     * without an idempotency key is given one, as described above.
+     */
+    public <T> ListenableFuture<List<BatchResult<T>>> executeAsync(
+            Collection<? extends IdempotentPostRequest<T>> requests) {
+        List<IdempotentPostRequest<T>> batch = ImmutableList.copyOf(requests);
+        for (IdempotentPostRequest<T> request : batch) {
+            if (request.getIdempotencyKey() == null) {
+                request.setIdempotencyKey(UUID.randomUUID().toString());
+            }
+        }
+        return new Run<>(batch).start(concurrency);
+    }
+
+    private static final class Run<T> {
+        private final List<IdempotentPostRequest<T>> requests;
+        private final BatchResult<?>[] results;
+        private final AtomicInteger remaining;
+        // The number of requests which can be sent without exceeding the concurrency limit.
+        private final AtomicInteger available = new AtomicInteger();
+        // Counts calls to submitAvailable, so that only one thread submits at a time, and
+        // calls made while it's submitting are picked up by its loop rather than recursing.
+        private final AtomicInteger submitting = new AtomicInteger();
+        private final SettableFuture<List<BatchResult<T>>> future = SettableFuture.create();
+        // Only accessed by the thread which is submitting.
+        private int next;
+
+        private Run(List<IdempotentPostRequest<T>> requests) {
+            this.requests = requests;
+            this.results = new BatchResult<?>[requests.size()];
+            this.remaining = new AtomicInteger(requests.size());
+        }
+
+        private ListenableFuture<List<BatchResult<T>>> start(int concurrency) {
+            if (requests.isEmpty()) {
+                future.set(ImmutableList.<BatchResult<T>>of());
+            }
+            available.set(Math.min(concurrency, requests.size()));
+            submitAvailable();
+            return future;
+        }
+
+        /**
+         * Submits requests until the concurrency limit is reached or none are left. Requests
+         * which complete straight away call this from within the loop, so it's a loop rather
+         * than recursion, however many of them there are.
+         */
+        private void submitAvailable() {
+            if (submitting.getAndIncrement() != 0) {
+                return;
+            }
+            int calls = 1;
+            do {
+                while (next < requests.size() && available.get() > 0) {
+                    available.decrementAndGet();
+                    submit(next++);
+                }
+                calls = submitting.addAndGet(-calls);
+            } while (calls != 0);
+        }
+
+        private void submit(final int position) {
+            final IdempotentPostRequest<T> request = requests.get(position);
+            ListenableFuture<T> result;
+            try {
+                result = request.executeAsync();
+            } catch (RuntimeException e) {
+                record(position, BatchResult.<T>failure(request, e));
+                available.incrementAndGet();
+                return;
+            }
+            Futures.addCallback(result, new FutureCallback<T>() {
+                @Override
+                public void onSuccess(T resource) {
+                    record(position, BatchResult.success(request, resource));
+                    available.incrementAndGet();
+                    submitAvailable();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    record(position, BatchResult.<T>failure(request, t));
+                    available.incrementAndGet();
+                    submitAvailable();
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        @SuppressWarnings("unchecked")
+        private void record(int index, BatchResult<T> result) {
+            results[index] = result;
+            if (remaining.decrementAndGet() == 0) {
+                List<?> completed = Arrays.asList(results);
+                future.set(ImmutableList.copyOf((List<BatchResult<T>>) completed));
+            }
+        }
+    }
+}
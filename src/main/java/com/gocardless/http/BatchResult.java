@@ -0,0 +1,56 @@
+package com.gocardless.http;
+
+/**
+ * The outcome of a single request executed as part of a batch.
+ *
+ * @param <T> the type of the item returned by the request.
+ */
+public class BatchResult<T> {
+    private final IdempotentPostRequest<T> request;
+    private final T resource;
+    private final Throwable exception;
+
+    private BatchResult(IdempotentPostRequest<T> request, T resource, Throwable exception) {
+        this.request = request;
+        this.resource = resource;
+        this.exception = exception;
+    }
+
+    static <T> BatchResult<T> success(IdempotentPostRequest<T> request, T resource) {
+        return new BatchResult<>(request, resource, null);
+    }
+
+    static <T> BatchResult<T> failure(IdempotentPostRequest<T> request, Throwable exception) {
+        return new BatchResult<>(request, null, exception);
+    }
+
+    /**
+     * Returns the request which produced this result.  Failed requests keep the idempotency
+     * key they were sent with, so they can safely be resubmitted.
+     */
+    public IdempotentPostRequest<T> getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns true if the request completed successfully.
+     */
+    public boolean isSuccessful() {
+        return exception == null;
+    }
+
+    /**
+     * Returns the resource returned by the API, or null if the request failed.
+     */
+    public T getResource() {
+        return resource;
+    }
+
+    /**
+     * Returns the exception that caused the request to fail, or null if it succeeded.  This
+     * will usually be a {@link com.gocardless.GoCardlessException}.
+     */
+    public Throwable getException() {
+        return exception;
+    }
+}
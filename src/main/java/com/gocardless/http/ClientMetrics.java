@@ -0,0 +1,75 @@
+package com.gocardless.http;
+
+/**
+ * Receives measurements of the requests made by a client, so that they can be reported to a
+ * metrics system. Set one with
+ * {@link com.gocardless.GoCardlessClient.Builder#withMetrics(ClientMetrics)}.
+ *
+ * Requests are identified by their HTTP method and path template (for example `GET` and
+ * `payments/:identity`), so that measurements for the same endpoint are grouped together
+ * whatever the IDs in the URL. {@link InMemoryClientMetrics} keeps measurements in memory
+ * without any other dependencies. To report to another system, such as Micrometer, record
+ * each measurement as the corresponding timer, counter or distribution summary.
+ *
+ * Methods are called on the threads making requests, so implementations must be thread-safe
+ * and should return quickly.
+ */
+public interface ClientMetrics {
+    /**
+     * Metrics which discard every measurement. This is the default.
+     */
+    ClientMetrics NONE = new ClientMetrics() {
+        @Override
+        public void recordRequest(String method, String pathTemplate, int statusCode,
+                long durationNanos, long responseBytes) {}
+
+        @Override
+        public void recordParse(String method, String pathTemplate, long durationNanos) {}
+
+        @Override
+        public void recordRetry(String method, String pathTemplate, int attempt) {}
+
+        @Override
+        public void recordIdempotencyConflict(String method, String pathTemplate) {}
+
+        @Override
+        public void recordConnectionPool(int connectionCount, int idleConnectionCount) {}
+    };
+
+    /**
+     * Records a single attempt at a request, from sending it to receiving the response
+     * headers.
+     *
+     * @param statusCode the response's status code, or -1 if no response was received
+     * @param durationNanos how long the attempt took
+     * @param responseBytes the size of the response body, or -1 if it isn't known
+     */
+    void recordRequest(String method, String pathTemplate, int statusCode, long durationNanos,
+            long responseBytes);
+
+    /**
+     * Records how long it took to read and parse a successful response body.
+     */
+    void recordParse(String method, String pathTemplate, long durationNanos);
+
+    /**
+     * Records that a failed attempt at a request is going to be retried.
+     *
+     * @param attempt the number of the attempt which failed, starting at 1
+     */
+    void recordRetry(String method, String pathTemplate, int attempt);
+
+    /**
+     * Records that a create request conflicted with an earlier one using the same
+     * idempotency key, and the existing resource is being fetched instead.
+     */
+    void recordIdempotencyConflict(String method, String pathTemplate);
+
+    /**
+     * Records the state of the connection pool after a response is received.
+     *
+     * @param connectionCount the number of open connections
+     * @param idleConnectionCount the number of those connections which are idle
+     */
+    void recordConnectionPool(int connectionCount, int idleConnectionCount);
+}
@@ -1,5 +1,10 @@
 package com.gocardless.http;
 
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Base class for DELETE requests.
  *
@@ -33,8 +38,28 @@ public abstract class DeleteRequest<T> extends ApiRequest<T> {
         return getHttpClient().executeWrapped(this);
     }
 
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with the response entity.
+     */
+    public ListenableFuture<T> executeAsync() {
+        return getHttpClient().executeWithRetriesAsync(this);
+    }
+
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with a {@link com.gocardless.http.ApiResponse}
+     * that wraps the response entity.
+     */
+    public ListenableFuture<ApiResponse<T>> executeWrappedAsync() {
+        return getHttpClient().executeWrappedAsync(this);
+    }
+
     @Override
-    protected T parseResponse(String responseBody, ResponseParser responseParser) {
+    protected T parseResponse(Reader responseBody, ResponseParser responseParser)
+            throws IOException {
         return responseParser.parseSingle(responseBody, getEnvelope(), getResponseClass());
     }
 
@@ -1,5 +1,10 @@
 package com.gocardless.http;
 
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Base class for GET requests that return a single item.
  *
@@ -13,12 +18,13 @@ public abstract class GetRequest<T> extends ApiRequest<T> {
     /**
      * Executes this request.
      *
-     * Returns the response entity.
+     * Returns the response entity. If the client has a {@link ResourceCache} which caches
+     * this type of resource, it may be served from the cache.
      *
      * @throws com.gocardless.GoCardlessException
      */
     public T execute() {
-        return getHttpClient().executeWithRetries(this);
+        return getHttpClient().executeCached(this);
     }
 
     /**
@@ -33,8 +39,28 @@ public abstract class GetRequest<T> extends ApiRequest<T> {
         return getHttpClient().executeWrapped(this);
     }
 
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with the response entity.
+     */
+    public ListenableFuture<T> executeAsync() {
+        return getHttpClient().executeCoalescedAsync(this);
+    }
+
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with a {@link com.gocardless.http.ApiResponse}
+     * that wraps the response entity.
+     */
+    public ListenableFuture<ApiResponse<T>> executeWrappedAsync() {
+        return getHttpClient().executeWrappedAsync(this);
+    }
+
     @Override
-    protected T parseResponse(String responseBody, ResponseParser responseParser) {
+    protected T parseResponse(Reader responseBody, ResponseParser responseParser)
+            throws IOException {
         return responseParser.parseSingle(responseBody, getEnvelope(), getResponseClass());
     }
 
@@ -1,5 +1,11 @@
 package com.gocardless.http;
 
+import java.util.List;
+
+import com.gocardless.errors.ApiErrorResponse;
+import com.gocardless.resources.*;
+
+import com.google.common.collect.ImmutableList;
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
@@ -8,13 +14,41 @@ import com.google.gson.GsonBuilder;
 import static com.google.gson.FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES;
 
 final class GsonFactory {
+    /**
+     * The types which responses from the API are bound to. Every class in
+     * `com.gocardless.resources` must be listed here, which GsonFactoryTest checks.
+     */
+    static final List<Class<?>> RESPONSE_CLASSES = ImmutableList.<Class<?>>of(
+            BankDetailsLookup.class, Creditor.class, CreditorBankAccount.class,
+            CurrencyExchangeRate.class, Customer.class, CustomerBankAccount.class,
+            CustomerNotification.class, Event.class, InstalmentSchedule.class, Mandate.class,
+            MandateImport.class, MandateImportEntry.class, MandatePdf.class, Payment.class,
+            Payout.class, PayoutItem.class, RedirectFlow.class, Refund.class,
+            Subscription.class, ListResponse.Meta.class, ApiErrorResponse.class);
+
     private GsonFactory() {
         // blank to prevent instantiation
     }
 
     static Gson build() {
+        return newBuilder().create();
+    }
+
+    static GsonBuilder newBuilder() {
         return new GsonBuilder().setFieldNamingPolicy(LOWER_CASE_WITH_UNDERSCORES)
-                .addSerializationExclusionStrategy(new PathParamExclusionStrategy()).create();
+                .addSerializationExclusionStrategy(new PathParamExclusionStrategy());
+    }
+
+    /**
+     * Builds the type adapters for every response type up front. Gson otherwise works out by
+     * reflection how to bind each type (and every type nested within it) the first time it
+     * sees one, which slows down the first response of each type.
+     */
+    static Gson preloadAdapters(Gson gson) {
+        for (Class<?> clazz : RESPONSE_CLASSES) {
+            gson.getAdapter(clazz);
+        }
+        return gson;
     }
 
     private static class PathParamExclusionStrategy implements ExclusionStrategy {
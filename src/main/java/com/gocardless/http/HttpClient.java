@@ -1,22 +1,27 @@
 package com.gocardless.http;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.Date;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-
-import com.github.rholder.retry.*;
+import java.util.concurrent.*;
 
 import com.gocardless.GoCardlessException;
 import com.gocardless.errors.GoCardlessInternalException;
 
+import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.*;
 import com.google.gson.Gson;
 
 import com.squareup.okhttp.*;
 
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * An HTTP client that can execute {@link ApiRequest}s.
@@ -25,7 +30,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
  */
 public class HttpClient {
     /**
-     * The maximum number of times that a request can be retried.
+     * The number of times that a request is attempted under the default {@link RetryPolicy}.
      */
     public static final int MAX_RETRIES = 3;
     /**
@@ -43,8 +48,17 @@ public class HttpClient {
     private static final RequestBody EMPTY_BODY = RequestBody.create(null, new byte[0]);
     private static final MediaType MEDIA_TYPE = MediaType.parse("application/json");
     private static final Map<String, String> HEADERS;
+    // Shared by every client, so that creating many clients doesn't create threads for each.
+    // Idle async threads exit after a minute; the retry thread is only started by a retry.
+    private static final Executor DEFAULT_ASYNC_EXECUTOR =
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("gocardless-async-%d").build());
+    private static final ScheduledExecutorService RETRY_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("gocardless-retry-%d").build());
     static {
         ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        builder.put("User-Agent", USER_AGENT);
         builder.put("GoCardless-Version", "2015-07-06");
         builder.put("GoCardless-Client-Library", "gocardless-pro-java");
         builder.put("GoCardless-Client-Version", "4.2.0");
@@ -54,8 +68,17 @@ public class HttpClient {
     private final UrlFormatter urlFormatter;
     private final ResponseParser responseParser;
     private final RequestWriter requestWriter;
-    private final String credentials;
+    private final WebhookParser webhookParser;
+    private final Headers clientHeaders;
     private final boolean errorOnIdempotencyConflict;
+    private final Executor asyncExecutor;
+    private final int pagePrefetchDepth;
+    private final RetryPolicy retryPolicy;
+    private final ResourceCache resourceCache;
+    private final ClientMetrics metrics;
+    private final boolean adaptersPreloaded;
+    // GET requests in flight, when coalescing is enabled, keyed by URL and custom headers.
+    private final ConcurrentMap<ResourceCache.Key, ListenableFuture<?>> inFlight;
 
     /**
      * Constructor.  Users of this library should not need to access this class directly - you should instantiate
@@ -68,64 +91,343 @@ public class HttpClient {
      */
     public HttpClient(String accessToken, String baseUrl, OkHttpClient rawClient,
             boolean errorOnIdempotencyConflict) {
+        this(accessToken, baseUrl, rawClient, errorOnIdempotencyConflict, null, 0, null,
+                false, null, null, false, false);
+    }
+
+    /**
+     * Constructor.  Users of this library should not need to access this class directly - you should instantiate
+     * a GoCardlessClient and its underlying HttpClient using GoCardlessClient.newBuilder().
+     *
+     * @param accessToken the access token.
+     * @param baseUrl base URI to make requests against.
+     * @param rawClient the OkHttpClient instance to use to make requests (which will be configured
+     *                  to log requests with LoggingInterceptor).
+     * @param asyncExecutor the executor on which responses to asynchronous requests are parsed,
+     *                      or null to use a pool of daemon threads shared by every client.
+     * @param pagePrefetchDepth the number of pages to fetch ahead of the page being consumed
+     *                          when iterating through list responses, or 0 to disable this.
+     * @param retryPolicy the policy for retrying requests which are safe to retry, or null to
+     *                    use {@link RetryPolicy#DEFAULT}.
+     * @param rateLimited whether to pace requests according to the rate limit headers returned
+     *                    by the API.
+     * @param resourceCache the cache of resources fetched by {@link GetRequest}s, or null to
+     *                      disable caching.
+     * @param metrics the metrics to record requests with, or null to not record them.
+     * @param preloadAdapters whether to prepare to parse every type of response straight away,
+     *                        rather than when the first response of each type arrives.
+     * @param coalesceRequests whether concurrent, identical GET requests should share a single
+     *                         request to the API.
+     */
+    public HttpClient(String accessToken, String baseUrl, OkHttpClient rawClient,
+            boolean errorOnIdempotencyConflict, Executor asyncExecutor, int pagePrefetchDepth,
+            RetryPolicy retryPolicy, boolean rateLimited, ResourceCache resourceCache,
+            ClientMetrics metrics, boolean preloadAdapters, boolean coalesceRequests) {
         this.rawClient = rawClient;
+        if (rateLimited) {
+            rawClient.interceptors().add(new RateLimitInterceptor());
+        }
         rawClient.interceptors().add(new LoggingInterceptor());
         this.urlFormatter = new UrlFormatter(baseUrl);
         Gson gson = GsonFactory.build();
+        if (preloadAdapters) {
+            GsonFactory.preloadAdapters(gson);
+        }
         this.responseParser = new ResponseParser(gson);
         this.requestWriter = new RequestWriter(gson);
-        this.credentials = String.format("Bearer %s", accessToken);
+        this.webhookParser = new WebhookParser(gson);
+        this.adaptersPreloaded = preloadAdapters;
+        this.clientHeaders = buildClientHeaders(accessToken);
         this.errorOnIdempotencyConflict = errorOnIdempotencyConflict;
+        this.asyncExecutor = asyncExecutor != null ? asyncExecutor : DEFAULT_ASYNC_EXECUTOR;
+        this.pagePrefetchDepth = pagePrefetchDepth;
+        this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.DEFAULT;
+        this.resourceCache = resourceCache;
+        this.metrics = metrics != null ? metrics : ClientMetrics.NONE;
+        this.inFlight = coalesceRequests
+                ? new ConcurrentHashMap<ResourceCache.Key, ListenableFuture<?>>() : null;
     }
 
     public boolean isErrorOnIdempotencyConflict() {
         return this.errorOnIdempotencyConflict;
     }
 
+    /**
+     * Returns a parser for webhooks which shares this client's JSON configuration.
+     */
+    public WebhookParser getWebhookParser() {
+        return webhookParser;
+    }
+
+    boolean hasPreloadedAdapters() {
+        return adaptersPreloaded;
+    }
+
+    int getPagePrefetchDepth() {
+        return pagePrefetchDepth;
+    }
+
     <T> T execute(ApiRequest<T> apiRequest) {
         Request request = buildRequest(apiRequest);
-        Response response = execute(request);
+        Response response = execute(apiRequest, request);
         return parseResponseBody(apiRequest, response);
     }
 
     <T> ApiResponse<T> executeWrapped(ApiRequest<T> apiRequest) {
         Request request = buildRequest(apiRequest);
-        Response response = execute(request);
+        Response response = execute(apiRequest, request);
         T resource = parseResponseBody(apiRequest, response);
         return new ApiResponse<>(resource, response.code(), response.headers().toMultimap());
     }
 
-    <T> T executeWithRetries(final ApiRequest<T> apiRequest) {
-        Retryer<T> retrier =
-                RetryerBuilder.<T>newBuilder()
-                        .retryIfExceptionOfType(GoCardlessNetworkException.class)
-                        .retryIfExceptionOfType(GoCardlessInternalException.class)
-                        .withWaitStrategy(WaitStrategies.fixedWait(500, MILLISECONDS))
-                        .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_RETRIES)).build();
-        Callable<T> executeOnce = new Callable<T>() {
+    <T> T executeWithRetries(ApiRequest<T> apiRequest) {
+        return executeWithRetries(apiRequest, null, 0, null);
+    }
+
+    /**
+     * Executes a GET request, serving it from the resource cache if the client has one and
+     * it holds a fresh copy of the resource. If coalescing is enabled and an identical request
+     * is already in flight, this waits for its result instead of making another request, and
+     * returns the same resource instance, or throws the same exception, as that request.
+     */
+    <T> T executeCached(GetRequest<T> apiRequest) {
+        if (inFlight == null) {
+            return fetchCached(apiRequest);
+        }
+        ResourceCache.Key key = ResourceCache.keyFor(apiRequest, apiRequest.getUrl(urlFormatter));
+        SettableFuture<T> future = SettableFuture.create();
+        ListenableFuture<?> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            @SuppressWarnings("unchecked")
+            T resource = (T) getShared(existing);
+            return resource;
+        }
+        try {
+            T resource = fetchCached(apiRequest);
+            future.set(resource);
+            return resource;
+        } catch (RuntimeException | Error e) {
+            // Waiting threads see the same failure.
+            future.setException(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Executes a GET request asynchronously. If coalescing is enabled and an identical request
+     * is already in flight, the returned future completes with its result instead of another
+     * request being made. Cancelling the returned future doesn't cancel a shared request.
+     */
+    <T> ListenableFuture<T> executeCoalescedAsync(GetRequest<T> apiRequest) {
+        if (inFlight == null) {
+            return executeWithRetriesAsync(apiRequest);
+        }
+        final ResourceCache.Key key =
+                ResourceCache.keyFor(apiRequest, apiRequest.getUrl(urlFormatter));
+        SettableFuture<T> future = SettableFuture.create();
+        ListenableFuture<?> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            @SuppressWarnings("unchecked")
+            ListenableFuture<T> shared = (ListenableFuture<T>) existing;
+            return Futures.nonCancellationPropagating(shared);
+        }
+        final SettableFuture<T> leader = future;
+        leader.addListener(new Runnable() {
+            @Override
+            public void run() {
+                inFlight.remove(key, leader);
+            }
+        }, MoreExecutors.directExecutor());
+        leader.setFuture(executeWithRetriesAsync(apiRequest));
+        return Futures.nonCancellationPropagating(leader);
+    }
+
+    private <T> T fetchCached(GetRequest<T> apiRequest) {
+        if (resourceCache == null || !resourceCache.isCached(apiRequest.getEnvelope())) {
+            return executeWithRetries(apiRequest);
+        }
+        ResourceCache.Key key =
+                ResourceCache.keyFor(apiRequest, apiRequest.getUrl(urlFormatter));
+        long version = resourceCache.getVersion();
+        ResourceCache.Entry entry = resourceCache.get(key);
+        if (entry != null && resourceCache.isFresh(key, entry)) {
+            @SuppressWarnings("unchecked")
+            T resource = (T) entry.getResource();
+            return resource;
+        }
+        return executeWithRetries(apiRequest, key, version, entry);
+    }
+
+    /**
+     * Executes a request, retrying it according to its retry policy. If a cache key is given,
+     * the response is stored in the resource cache (unless the resource has been invalidated
+     * since the cache was at the given version), and if a cached entry is given too, the
+     * request is made conditional on the resource having changed since it was cached.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T executeWithRetries(ApiRequest<T> apiRequest, ResourceCache.Key cacheKey,
+            long cacheVersion, ResourceCache.Entry cached) {
+        RetryPolicy policy = getRetryPolicy(apiRequest);
+        long startNanos = System.nanoTime();
+        // Built once, so that every attempt is sent with the same idempotency key.
+        Request request = buildRequest(apiRequest);
+        if (cached != null) {
+            request = cached.addValidators(request);
+        }
+        for (int attempt = 1;; attempt++) {
+            Response response = null;
+            RuntimeException failure;
+            try {
+                response = call(apiRequest, request);
+                if (cached != null && response.code() == HTTP_NOT_MODIFIED) {
+                    response.body().close();
+                    resourceCache.revalidated(cacheKey, cacheVersion, cached,
+                            response.headers());
+                    return (T) cached.getResource();
+                }
+                T resource = complete(apiRequest, response);
+                if (cacheKey != null) {
+                    resourceCache.put(cacheKey, cacheVersion, resource, response.headers());
+                }
+                return resource;
+            } catch (IOException e) {
+                failure = new GoCardlessNetworkException("Failed to execute request", e);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            long delay = getRetryDelay(policy, attempt, startNanos, failure, response);
+            if (delay < 0) {
+                throw failure;
+            }
+            metrics.recordRetry(apiRequest.getMethod(), apiRequest.getPathTemplate(), attempt);
+            try {
+                MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
+        }
+    }
+
+    <T> ListenableFuture<T> executeAsync(final ApiRequest<T> apiRequest) {
+        Request request = buildRequest(apiRequest);
+        return Futures.transform(executeAsync(apiRequest, request), new Function<Response, T>() {
+            @Override
+            public T apply(Response response) {
+                checkResponse(response);
+                return parseResponseBody(apiRequest, response);
+            }
+        }, asyncExecutor);
+    }
+
+    <T> ListenableFuture<ApiResponse<T>> executeWrappedAsync(final ApiRequest<T> apiRequest) {
+        Request request = buildRequest(apiRequest);
+        return Futures.transform(executeAsync(apiRequest, request),
+                new Function<Response, ApiResponse<T>>() {
+                    @Override
+                    public ApiResponse<T> apply(Response response) {
+                        checkResponse(response);
+                        T resource = parseResponseBody(apiRequest, response);
+                        return new ApiResponse<>(resource, response.code(),
+                                response.headers().toMultimap());
+                    }
+                }, asyncExecutor);
+    }
+
+    <T> ListenableFuture<T> executeWithRetriesAsync(ApiRequest<T> apiRequest) {
+        SettableFuture<T> result = SettableFuture.create();
+        // Built once, so that every attempt is sent with the same idempotency key.
+        executeWithRetriesAsync(apiRequest, buildRequest(apiRequest), getRetryPolicy(apiRequest),
+                System.nanoTime(), 1, result);
+        return result;
+    }
+
+    private <T> void executeWithRetriesAsync(final ApiRequest<T> apiRequest,
+            final Request request, final RetryPolicy policy, final long startNanos,
+            final int attempt, final SettableFuture<T> result) {
+        if (result.isCancelled()) {
+            return;
+        }
+        final ListenableFuture<Response> future = executeAsync(apiRequest, request);
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        Futures.addCallback(future, new FutureCallback<Response>() {
+            @Override
+            public void onSuccess(Response response) {
+                try {
+                    result.set(complete(apiRequest, response));
+                } catch (RuntimeException e) {
+                    retryOrFail(e, response);
+                }
+            }
+
             @Override
-            public T call() throws Exception {
-                return execute(apiRequest);
+            public void onFailure(Throwable t) {
+                retryOrFail(t, null);
             }
-        };
+
+            private void retryOrFail(Throwable t, Response response) {
+                long delay = getRetryDelay(policy, attempt, startNanos, t, response);
+                if (delay < 0) {
+                    result.setException(t);
+                    return;
+                }
+                metrics.recordRetry(apiRequest.getMethod(), apiRequest.getPathTemplate(),
+                        attempt);
+                RETRY_SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        executeWithRetriesAsync(apiRequest, request, policy, startNanos,
+                                attempt + 1, result);
+                    }
+                }, delay, MILLISECONDS);
+            }
+        }, asyncExecutor);
+    }
+
+    /**
+     * Waits for the result of a request made by another thread, throwing its exception if it
+     * failed. If this thread is interrupted, it stops waiting, but the shared request carries on.
+     */
+    private static Object getShared(ListenableFuture<?> future) {
         try {
-            return retrier.call(executeOnce);
-        } catch (ExecutionException | RetryException e) {
-            Throwable cause = e.getCause();
-            throw Throwables.propagate(cause);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoCardlessNetworkException("Interrupted while waiting for shared request",
+                    new InterruptedIOException());
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new UncheckedExecutionException(e.getCause());
         }
     }
 
     private <T> Request buildRequest(ApiRequest<T> apiRequest) {
         HttpUrl url = apiRequest.getUrl(urlFormatter);
-        Request.Builder request =
-                new Request.Builder().url(url).headers(Headers.of(apiRequest.getHeaders()))
-                        .header("Authorization", credentials).header("User-Agent", USER_AGENT)
-                        .method(apiRequest.getMethod(), getBody(apiRequest));
+        Headers.Builder headers = clientHeaders.newBuilder();
+        apiRequest.addHeaders(headers, clientHeaders);
+        return new Request.Builder().url(url).headers(headers.build())
+                .method(apiRequest.getMethod(), getBody(apiRequest)).build();
+    }
+
+    /**
+     * Builds the headers which are sent with every request, once per client.
+     */
+    private static Headers buildClientHeaders(String accessToken) {
+        Headers.Builder headers = new Headers.Builder();
+        headers.add("Authorization", String.format("Bearer %s", accessToken));
         for (Map.Entry<String, String> entry : HEADERS.entrySet()) {
-            request = request.header(entry.getKey(), entry.getValue());
+            headers.add(entry.getKey(), entry.getValue());
         }
-        return request.build();
+        return headers.build();
     }
 
     private <T> RequestBody getBody(ApiRequest<T> request) {
@@ -140,26 +442,123 @@ public class HttpClient {
         return RequestBody.create(MEDIA_TYPE, json);
     }
 
-    private Response execute(Request request) {
+    private Response execute(ApiRequest<?> apiRequest, Request request) {
         Response response;
         try {
-            response = rawClient.newCall(request).execute();
+            response = call(apiRequest, request);
         } catch (IOException e) {
             throw new GoCardlessNetworkException("Failed to execute request", e);
         }
+        checkResponse(response);
+        return response;
+    }
+
+    /**
+     * Makes a single attempt at a request, and records it.
+     */
+    private Response call(ApiRequest<?> apiRequest, Request request) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            Response response = rawClient.newCall(request).execute();
+            recordRequest(apiRequest, startNanos, response);
+            return response;
+        } catch (IOException e) {
+            recordRequest(apiRequest, startNanos, null);
+            throw e;
+        }
+    }
+
+    private ListenableFuture<Response> executeAsync(final ApiRequest<?> apiRequest,
+            Request request) {
+        final SettableFuture<Response> future = SettableFuture.create();
+        final Call call = rawClient.newCall(request);
+        final long startNanos = System.nanoTime();
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isCancelled()) {
+                    call.cancel();
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Request request, IOException e) {
+                recordRequest(apiRequest, startNanos, null);
+                future.setException(
+                        new GoCardlessNetworkException("Failed to execute request", e));
+            }
+
+            @Override
+            public void onResponse(Response response) throws IOException {
+                recordRequest(apiRequest, startNanos, response);
+                if (!future.set(response)) {
+                    response.body().close();
+                }
+            }
+        });
+        return future;
+    }
+
+    private void checkResponse(Response response) {
         if (!response.isSuccessful()) {
             throw handleErrorResponse(response);
         }
-        return response;
+    }
+
+    private <T> T complete(ApiRequest<T> apiRequest, Response response) {
+        checkResponse(response);
+        return parseResponseBody(apiRequest, response);
     }
 
     private <T> T parseResponseBody(ApiRequest<T> request, Response response) {
-        try {
-            String responseBody = response.body().string();
-            return request.parseResponse(responseBody, responseParser);
+        T resource;
+        long startNanos = System.nanoTime();
+        try (Reader responseBody = response.body().charStream()) {
+            resource = request.parseResponse(responseBody, responseParser);
         } catch (IOException e) {
             throw new GoCardlessNetworkException("Failed to read response body", e);
         }
+        metrics.recordParse(request.getMethod(), request.getPathTemplate(),
+                System.nanoTime() - startNanos);
+        invalidateCachedResource(request);
+        return resource;
+    }
+
+    /**
+     * Removes a resource which a request may have changed from the resource cache.
+     */
+    private void invalidateCachedResource(ApiRequest<?> request) {
+        if (resourceCache != null && !request.getMethod().equals("GET")) {
+            String id = request.getPathParams().get("identity");
+            if (id != null) {
+                resourceCache.invalidate(request.getEnvelope(), id);
+            }
+        }
+    }
+
+    void recordIdempotencyConflict(ApiRequest<?> apiRequest) {
+        metrics.recordIdempotencyConflict(apiRequest.getMethod(), apiRequest.getPathTemplate());
+    }
+
+    private void recordRequest(ApiRequest<?> apiRequest, long startNanos, Response response) {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (response == null) {
+            metrics.recordRequest(apiRequest.getMethod(), apiRequest.getPathTemplate(), -1,
+                    durationNanos, -1);
+            return;
+        }
+        long responseBytes;
+        try {
+            responseBytes = response.body().contentLength();
+        } catch (IOException e) {
+            responseBytes = -1;
+        }
+        metrics.recordRequest(apiRequest.getMethod(), apiRequest.getPathTemplate(),
+                response.code(), durationNanos, responseBytes);
+        ConnectionPool pool = rawClient.getConnectionPool() != null
+                ? rawClient.getConnectionPool() : ConnectionPool.getDefault();
+        metrics.recordConnectionPool(pool.getConnectionCount(), pool.getIdleConnectionCount());
     }
 
     private GoCardlessException handleErrorResponse(Response response) {
@@ -171,6 +570,58 @@ public class HttpClient {
         }
     }
 
+    private RetryPolicy getRetryPolicy(ApiRequest<?> apiRequest) {
+        RetryPolicy policy = apiRequest.getRetryPolicy();
+        return policy != null ? policy : retryPolicy;
+    }
+
+    /**
+     * Returns how long to wait before retrying a failed attempt, or -1 if it shouldn't be.
+     */
+    private static long getRetryDelay(RetryPolicy policy, int attempt, long startNanos,
+            Throwable failure, Response response) {
+        boolean retryable = failure instanceof GoCardlessNetworkException
+                || failure instanceof GoCardlessInternalException
+                || (response != null && !response.isSuccessful()
+                        && policy.isRetryableStatus(response.code()));
+        if (!retryable) {
+            return -1;
+        }
+        long elapsedMillis = NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return policy.getDelayMillis(attempt, elapsedMillis, getRetryAfterMillis(response));
+    }
+
+    /**
+     * Returns the wait requested by a `Retry-After` header (in seconds or as a date), or
+     * failing that, if the request was rejected for exceeding the rate limit, the time until
+     * the `RateLimit-Reset` date, or -1 if there is neither.
+     *
+     * Every response carries the rate limit headers, so they're only used when the rate limit
+     * is what stopped the request. Other failures back off as usual.
+     */
+    private static long getRetryAfterMillis(Response response) {
+        if (response == null) {
+            return -1;
+        }
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null && retryAfter.matches("\\d+")) {
+            return SECONDS.toMillis(Long.parseLong(retryAfter));
+        }
+        if (retryAfter == null && !isRateLimited(response)) {
+            return -1;
+        }
+        Date retryAt = response.headers().getDate(retryAfter != null ? "Retry-After"
+                : "RateLimit-Reset");
+        if (retryAt == null) {
+            return -1;
+        }
+        return Math.max(0, retryAt.getTime() - System.currentTimeMillis());
+    }
+
+    private static boolean isRateLimited(Response response) {
+        return response.code() == 429 || "0".equals(response.header("RateLimit-Remaining"));
+    }
+
     private static String cleanUserAgentToken(String s) {
         return s.replaceAll(DISALLOWED_USER_AGENT_CHARACTERS, "_");
     }
@@ -8,8 +8,13 @@ import com.gocardless.errors.InvalidStateException;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.squareup.okhttp.Headers;
 
 public abstract class IdempotentPostRequest<T> extends PostRequest<T> {
     private static final Predicate<ApiError> CONFLICT_ERROR = new Predicate<ApiError>() {
@@ -36,30 +41,63 @@ public abstract class IdempotentPostRequest<T> extends PostRequest<T> {
         try {
             return getHttpClient().executeWithRetries(this);
         } catch (InvalidStateException e) {
-            Optional<ApiError> conflictError = Iterables.tryFind(e.getErrors(), CONFLICT_ERROR);
-            if (conflictError.isPresent() && !getHttpClient().isErrorOnIdempotencyConflict()) {
-                String id = conflictError.get().getLinks().get("conflicting_resource_id");
-                return handleConflict(getHttpClient(), id).execute();
+            Optional<String> conflictingResourceId = getConflictingResourceId(e);
+            if (conflictingResourceId.isPresent()) {
+                getHttpClient().recordIdempotencyConflict(this);
+                return handleConflict(getHttpClient(), conflictingResourceId.get()).execute();
             } else {
                 throw Throwables.propagate(e);
             }
         }
     }
 
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with the response entity.
+     */
+    @Override
+    public ListenableFuture<T> executeAsync() {
+        return Futures.catchingAsync(getHttpClient().executeWithRetriesAsync(this),
+                InvalidStateException.class, new AsyncFunction<InvalidStateException, T>() {
+                    @Override
+                    public ListenableFuture<T> apply(InvalidStateException e) {
+                        Optional<String> conflictingResourceId = getConflictingResourceId(e);
+                        if (conflictingResourceId.isPresent()) {
+                            getHttpClient().recordIdempotencyConflict(
+                                    IdempotentPostRequest.this);
+                            return handleConflict(getHttpClient(), conflictingResourceId.get())
+                                    .executeAsync();
+                        } else {
+                            return Futures.immediateFailedFuture(e);
+                        }
+                    }
+                }, MoreExecutors.directExecutor());
+    }
+
     protected void setIdempotencyKey(String idempotencyKey) {
         this.idempotencyKey = idempotencyKey;
     }
 
+    String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
     @Override
-    protected final ImmutableMap<String, String> getHeaders() {
-        String requestIdempotencyKey;
-        if (this.idempotencyKey == null) {
-            requestIdempotencyKey = UUID.randomUUID().toString();
-        } else {
-            requestIdempotencyKey = this.idempotencyKey;
+    final void addHeaders(Headers.Builder headers, Headers clientHeaders) {
+        if (!hasCustomHeader("Idempotency-Key")) {
+            headers.add("Idempotency-Key",
+                    idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString());
+        }
+        super.addHeaders(headers, clientHeaders);
+    }
+
+    private Optional<String> getConflictingResourceId(InvalidStateException e) {
+        Optional<ApiError> conflictError = Iterables.tryFind(e.getErrors(), CONFLICT_ERROR);
+        if (conflictError.isPresent() && !getHttpClient().isErrorOnIdempotencyConflict()) {
+            return Optional.of(conflictError.get().getLinks().get("conflicting_resource_id"));
         }
-        return ImmutableMap.<String, String>builder().put("Idempotency-Key", requestIdempotencyKey)
-                .putAll(super.getHeaders()).build();
+        return Optional.absent();
     }
 
     protected abstract GetRequest<T> handleConflict(HttpClient httpClient, String id);
@@ -0,0 +1,227 @@
+package com.gocardless.http;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * {@link ClientMetrics} which keep running totals and latency histograms for each endpoint in
+ * memory, for you to read and report however you like.
+ *
+ * Latencies are counted in buckets which are each at most 1/8 wider than the one before, so
+ * percentiles are accurate to within about 12%, and recording takes no locks and allocates
+ * nothing once an endpoint has been seen.
+ *
+ * <pre>
+ * InMemoryClientMetrics metrics = new InMemoryClientMetrics();
+ * GoCardlessClient client = GoCardlessClient.newBuilder(accessToken)
+ *         .withMetrics(metrics)
+ *         .build();
+ * ...
+ * for (Map.Entry&lt;String, InMemoryClientMetrics.Endpoint&gt; entry
+ *         : metrics.getEndpoints().entrySet()) {
+ *     System.out.println(entry.getKey() + " p99=" + entry.getValue().getLatencyPercentile(0.99));
+ * }
+ * </pre>
+ */
+public class InMemoryClientMetrics implements ClientMetrics {
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger idleConnectionCount = new AtomicInteger();
+
+    @Override
+    public void recordRequest(String method, String pathTemplate, int statusCode,
+            long durationNanos, long responseBytes) {
+        Endpoint endpoint = getEndpoint(method, pathTemplate);
+        endpoint.requestCount.incrementAndGet();
+        if (statusCode < 0 || statusCode >= 400) {
+            endpoint.errorCount.incrementAndGet();
+        }
+        endpoint.latency.record(durationNanos);
+        if (responseBytes > 0) {
+            endpoint.responseBytes.addAndGet(responseBytes);
+        }
+    }
+
+    @Override
+    public void recordParse(String method, String pathTemplate, long durationNanos) {
+        getEndpoint(method, pathTemplate).parseTime.record(durationNanos);
+    }
+
+    @Override
+    public void recordRetry(String method, String pathTemplate, int attempt) {
+        getEndpoint(method, pathTemplate).retryCount.incrementAndGet();
+    }
+
+    @Override
+    public void recordIdempotencyConflict(String method, String pathTemplate) {
+        getEndpoint(method, pathTemplate).idempotencyConflictCount.incrementAndGet();
+    }
+
+    @Override
+    public void recordConnectionPool(int connectionCount, int idleConnectionCount) {
+        this.connectionCount.set(connectionCount);
+        this.idleConnectionCount.set(idleConnectionCount);
+    }
+
+    /**
+     * Returns the measurements for each endpoint which has been called, keyed by method and
+     * path template (for example `GET payments/:identity`).
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return ImmutableMap.copyOf(endpoints);
+    }
+
+    /**
+     * Returns the number of open connections when the last response was received.
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Returns the number of idle connections when the last response was received.
+     */
+    public int getIdleConnectionCount() {
+        return idleConnectionCount.get();
+    }
+
+    private Endpoint getEndpoint(String method, String pathTemplate) {
+        String key = method + " " + pathTemplate;
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            Endpoint created = new Endpoint();
+            endpoint = endpoints.putIfAbsent(key, created);
+            if (endpoint == null) {
+                endpoint = created;
+            }
+        }
+        return endpoint;
+    }
+
+    /**
+     * The measurements for a single endpoint. These are live, so successive calls may return
+     * different values.
+     */
+    public static final class Endpoint {
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong retryCount = new AtomicLong();
+        private final AtomicLong idempotencyConflictCount = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final Histogram latency = new Histogram();
+        private final Histogram parseTime = new Histogram();
+
+        private Endpoint() {}
+
+        /**
+         * Returns the number of attempts made, including retries.
+         */
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        /**
+         * Returns the number of attempts which failed with a network error or an error
+         * response.
+         */
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        /**
+         * Returns the number of retries made.
+         */
+        public long getRetryCount() {
+            return retryCount.get();
+        }
+
+        /**
+         * Returns the number of idempotency conflicts resolved by fetching the existing
+         * resource.
+         */
+        public long getIdempotencyConflictCount() {
+            return idempotencyConflictCount.get();
+        }
+
+        /**
+         * Returns the total size of the response bodies whose size was known in advance.
+         */
+        public long getResponseBytes() {
+            return responseBytes.get();
+        }
+
+        /**
+         * Returns an upper bound on the given percentile of request latency, in nanoseconds.
+         *
+         * @param quantile the percentile, between 0 and 1 (for example 0.99)
+         */
+        public long getLatencyPercentile(double quantile) {
+            return latency.percentile(quantile);
+        }
+
+        /**
+         * Returns an upper bound on the given percentile of response parsing time, in
+         * nanoseconds.
+         *
+         * @param quantile the percentile, between 0 and 1 (for example 0.99)
+         */
+        public long getParseTimePercentile(double quantile) {
+            return parseTime.percentile(quantile);
+        }
+    }
+
+    /**
+     * A histogram of non-negative values, with 8 linear buckets for each power of two.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private final AtomicLongArray counts = new AtomicLongArray(bucketFor(Long.MAX_VALUE) + 1);
+        private final AtomicLong total = new AtomicLong();
+
+        void record(long value) {
+            counts.incrementAndGet(bucketFor(Math.max(0, value)));
+            total.incrementAndGet();
+        }
+
+        long percentile(double quantile) {
+            Preconditions.checkArgument(quantile >= 0 && quantile <= 1,
+                    "quantile must be between 0 and 1");
+            long target = (long) Math.ceil(quantile * total.get());
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length(); bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= target && seen > 0) {
+                    return upperBound(bucket);
+                }
+            }
+            return 0;
+        }
+
+        static int bucketFor(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            long upper = ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+            return upper < 0 ? Long.MAX_VALUE : upper;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.gocardless.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.gocardless.resources.Creditor;
+import com.gocardless.resources.InstalmentSchedule;
+import com.gocardless.resources.Mandate;
+import com.gocardless.resources.Payment;
+import com.gocardless.resources.Payout;
+import com.gocardless.resources.Refund;
+import com.gocardless.resources.Subscription;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * The resources included alongside a page of items (for example with
+ * {@link com.gocardless.services.EventService.EventListRequest#withInclude}), keyed by ID.
+ *
+ * Each included resource is parsed once per page, however many items on the page link to it,
+ * so looking up the resources an event links to needs no further requests:
+ *
+ * <pre>
+ * ListResponse&lt;Event&gt; page = client.events().list()
+ *         .withResourceType(EventService.EventListRequest.ResourceType.PAYMENTS)
+ *         .withInclude(EventService.EventListRequest.Include.PAYMENT)
+ *         .execute();
+ * for (Event event : page.getItems()) {
+ *     Payment payment = page.getLinked().getPayment(event.getLinks().getPayment());
+ * }
+ * </pre>
+ */
+public final class LinkedResources {
+    static final LinkedResources EMPTY = new LinkedResources(ImmutableMap.<String, Object>of());
+    private static final Map<String, Class<?>> TYPES = ImmutableMap.<String, Class<?>>builder()
+            .put("creditors", Creditor.class)
+            .put("instalment_schedules", InstalmentSchedule.class)
+            .put("mandates", Mandate.class)
+            .put("payments", Payment.class)
+            .put("payouts", Payout.class)
+            .put("refunds", Refund.class)
+            .put("subscriptions", Subscription.class)
+            .build();
+    private final Map<String, Object> resources;
+
+    private LinkedResources(Map<String, Object> resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Parses the `linked` object from a response. Types of resource which the client doesn't
+     * know about are skipped.
+     */
+    static LinkedResources fromJson(JsonObject linked, Gson gson) {
+        if (linked == null) {
+            return EMPTY;
+        }
+        Map<String, Object> resources = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : linked.entrySet()) {
+            Class<?> type = TYPES.get(entry.getKey());
+            if (type == null || !entry.getValue().isJsonArray()) {
+                continue;
+            }
+            for (JsonElement element : entry.getValue().getAsJsonArray()) {
+                JsonElement id = element.getAsJsonObject().get("id");
+                if (id != null && !resources.containsKey(id.getAsString())) {
+                    resources.put(id.getAsString(), gson.fromJson(element, type));
+                }
+            }
+        }
+        return new LinkedResources(ImmutableMap.copyOf(resources));
+    }
+
+    /**
+     * Returns the included resource with the given ID, or null if there isn't one of that type.
+     *
+     * @param id the resource's ID, which may be null
+     * @param type the resource's class, for example `Payment.class`
+     */
+    public <R> R get(String id, Class<R> type) {
+        if (id == null) {
+            return null;
+        }
+        Object resource = resources.get(id);
+        return type.isInstance(resource) ? type.cast(resource) : null;
+    }
+
+    /**
+     * Returns the included creditor with the given ID, or null if it wasn't included.
+     */
+    public Creditor getCreditor(String id) {
+        return get(id, Creditor.class);
+    }
+
+    /**
+     * Returns the included instalment schedule with the given ID, or null if it wasn't
+     * included.
+     */
+    public InstalmentSchedule getInstalmentSchedule(String id) {
+        return get(id, InstalmentSchedule.class);
+    }
+
+    /**
+     * Returns the included mandate with the given ID, or null if it wasn't included.
+     */
+    public Mandate getMandate(String id) {
+        return get(id, Mandate.class);
+    }
+
+    /**
+     * Returns the included payment with the given ID, or null if it wasn't included.
+     */
+    public Payment getPayment(String id) {
+        return get(id, Payment.class);
+    }
+
+    /**
+     * Returns the included payout with the given ID, or null if it wasn't included.
+     */
+    public Payout getPayout(String id) {
+        return get(id, Payout.class);
+    }
+
+    /**
+     * Returns the included refund with the given ID, or null if it wasn't included.
+     */
+    public Refund getRefund(String id) {
+        return get(id, Refund.class);
+    }
+
+    /**
+     * Returns the included subscription with the given ID, or null if it wasn't included.
+     */
+    public Subscription getSubscription(String id) {
+        return get(id, Subscription.class);
+    }
+
+    /**
+     * Returns the number of included resources.
+     */
+    public int size() {
+        return resources.size();
+    }
+}
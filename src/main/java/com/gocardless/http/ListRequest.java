@@ -1,9 +1,14 @@
 package com.gocardless.http;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.reflect.TypeToken;
 
 /**
@@ -45,8 +50,77 @@ public abstract class ListRequest<S, T> extends ApiRequest<ListResponse<T>> {
         return executor.executeWrapped(this, getHttpClient());
     }
 
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with the API response.
+     *
+     * @throws IllegalStateException if this request was created with a custom
+     *     {@link ListRequestExecutor}
+     */
+    public ListenableFuture<S> executeAsync() {
+        return asyncExecutor("executeAsync").executeAsync(this, getHttpClient());
+    }
+
+    /**
+     * Executes this request asynchronously.
+     *
+     * Returns a future which completes with a {@link com.gocardless.http.ApiResponse}
+     * that wraps the response entity.
+     *
+     * @throws IllegalStateException if this request was created with a custom
+     *     {@link ListRequestExecutor}
+     */
+    public ListenableFuture<ApiResponse<S>> executeWrappedAsync() {
+        return asyncExecutor("executeWrappedAsync").executeWrappedAsync(this, getHttpClient());
+    }
+
+    private AsyncListRequestExecutor<S, T> asyncExecutor(String method) {
+        if (!(executor instanceof AsyncListRequestExecutor)) {
+            throw new IllegalStateException(
+                    method + " not available with a custom ListRequestExecutor");
+        }
+        return (AsyncListRequestExecutor<S, T>) executor;
+    }
+
+    /**
+     * Returns a lazy view of all of the items matching this request, across every page.
+     *
+     * Pages are only fetched as the view is iterated, so operations which finish early (such
+     * as `limit(n)`, `first()` or `firstMatch(predicate)`) never fetch more pages than they
+     * need. For the same reason, pages are never fetched ahead, even if the client was built
+     * with page prefetching enabled.
+     */
+    public FluentIterable<T> iterate() {
+        return new PaginatingIterable<>(this, getHttpClient(), 0);
+    }
+
+    /**
+     * Returns a lazy view of every page of items matching this request, so that each page's
+     * cursors and included resources ({@link ListResponse#getLinked}) are available as well
+     * as its items.
+     *
+     * Pages are fetched in the same way as by {@link #iterate}.
+     */
+    public FluentIterable<ListResponse<T>> iteratePages() {
+        final ListRequest<S, T> request = this;
+        return new FluentIterable<ListResponse<T>>() {
+            @Override
+            public Iterator<ListResponse<T>> iterator() {
+                return new PageIterator<>(request, getHttpClient(), 0);
+            }
+
+            // FluentIterable's toString() would iterate through (and so fetch) every page.
+            @Override
+            public String toString() {
+                return "PageIterable{path=" + getPathTemplate() + "}";
+            }
+        };
+    }
+
     @Override
-    protected ListResponse<T> parseResponse(String responseBody, ResponseParser responseParser) {
+    protected ListResponse<T> parseResponse(Reader responseBody, ResponseParser responseParser)
+            throws IOException {
         return responseParser.parsePage(responseBody, getEnvelope(), getTypeToken());
     }
 
@@ -95,8 +169,16 @@ public abstract class ListRequest<S, T> extends ApiRequest<ListResponse<T>> {
         ApiResponse<S> executeWrapped(ListRequest<S, T> request, HttpClient client);
     }
 
+    // Kept off ListRequestExecutor, so that existing implementations of it still compile.
+    interface AsyncListRequestExecutor<S, T> extends ListRequestExecutor<S, T> {
+        ListenableFuture<S> executeAsync(ListRequest<S, T> request, HttpClient client);
+
+        ListenableFuture<ApiResponse<S>> executeWrappedAsync(ListRequest<S, T> request,
+                HttpClient client);
+    }
+
     public static <T> ListRequestExecutor<ListResponse<T>, T> pagingExecutor() {
-        return new ListRequestExecutor<ListResponse<T>, T>() {
+        return new AsyncListRequestExecutor<ListResponse<T>, T>() {
             @Override
             public ListResponse<T> execute(ListRequest<ListResponse<T>, T> request,
                     HttpClient client) {
@@ -108,11 +190,23 @@ public abstract class ListRequest<S, T> extends ApiRequest<ListResponse<T>> {
                     ListRequest<ListResponse<T>, T> request, HttpClient client) {
                 return client.executeWrapped(request);
             }
+
+            @Override
+            public ListenableFuture<ListResponse<T>> executeAsync(
+                    ListRequest<ListResponse<T>, T> request, HttpClient client) {
+                return client.executeWithRetriesAsync(request);
+            }
+
+            @Override
+            public ListenableFuture<ApiResponse<ListResponse<T>>> executeWrappedAsync(
+                    ListRequest<ListResponse<T>, T> request, HttpClient client) {
+                return client.executeWrappedAsync(request);
+            }
         };
     }
 
     public static <T> ListRequestExecutor<Iterable<T>, T> iteratingExecutor() {
-        return new ListRequestExecutor<Iterable<T>, T>() {
+        return new AsyncListRequestExecutor<Iterable<T>, T>() {
             @Override
             public Iterable<T> execute(ListRequest<Iterable<T>, T> request, HttpClient client) {
                 return new PaginatingIterable<>(request, client);
@@ -124,6 +218,20 @@ public abstract class ListRequest<S, T> extends ApiRequest<ListResponse<T>> {
                 throw new IllegalStateException(
                         "executeWrapped not available when iterating through list responses");
             }
+
+            @Override
+            public ListenableFuture<Iterable<T>> executeAsync(ListRequest<Iterable<T>, T> request,
+                    HttpClient client) {
+                throw new IllegalStateException(
+                        "executeAsync not available when iterating through list responses");
+            }
+
+            @Override
+            public ListenableFuture<ApiResponse<Iterable<T>>> executeWrappedAsync(
+                    ListRequest<Iterable<T>, T> request, HttpClient client) {
+                throw new IllegalStateException(
+                        "executeWrappedAsync not available when iterating through list responses");
+            }
         };
     }
 }
@@ -10,10 +10,12 @@ import java.util.List;
 public class ListResponse<T> {
     private final List<T> items;
     private final Meta meta;
+    private final LinkedResources linked;
 
-    ListResponse(List<T> items, Meta meta) {
+    ListResponse(List<T> items, Meta meta, LinkedResources linked) {
         this.items = items;
         this.meta = meta;
+        this.linked = linked;
     }
 
     /**
@@ -23,6 +25,15 @@ public class ListResponse<T> {
         return items;
     }
 
+    /**
+     * Returns the resources included alongside the items on this page, if the request asked for
+     * any (for example with
+     * {@link com.gocardless.services.EventService.EventListRequest#withInclude}).
+     */
+    public LinkedResources getLinked() {
+        return linked;
+    }
+
     /**
      * Returns a cursor that can be used to get the page after this one.  If null, then
      * this is the last page.
@@ -0,0 +1,124 @@
+package com.gocardless.http;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.*;
+
+class PageIterator<T> extends AbstractIterator<ListResponse<T>> {
+    private final ListRequest<?, T> request;
+    private final HttpClient client;
+    private final int prefetchDepth;
+    private ListResponse<T> firstPage;
+    private String nextCursor;
+    // When prefetching, pages which have been requested but not yet consumed, in order. Pages
+    // are requested one at a time, as each page's cursor comes from the page before it.
+    private final Deque<ListenableFuture<ListResponse<T>>> prefetched = new ArrayDeque<>();
+    private ListenableFuture<ListResponse<T>> latestPage;
+    private String pendingCursor;
+
+    PageIterator(ListRequest<?, T> request, HttpClient client) {
+        this(request, client, client.getPagePrefetchDepth());
+    }
+
+    PageIterator(ListRequest<?, T> request, HttpClient client, int prefetchDepth) {
+        this.request = request;
+        this.client = client;
+        this.prefetchDepth = prefetchDepth;
+        if (prefetchDepth > 0) {
+            synchronized (this) {
+                prefetch(null);
+            }
+        } else {
+            firstPage = loadPage(null);
+        }
+    }
+
+    @Override
+    protected ListResponse<T> computeNext() {
+        if (prefetchDepth > 0) {
+            ListenableFuture<ListResponse<T>> page = takePrefetchedPage();
+            if (page == null) {
+                return endOfData();
+            }
+            ListResponse<T> response = getPage(page);
+            nextCursor = response.getAfter();
+            return response;
+        }
+        if (firstPage != null) {
+            ListResponse<T> response = firstPage;
+            firstPage = null;
+            return response;
+        }
+        if (nextCursor == null) {
+            return endOfData();
+        }
+        return loadPage(nextCursor);
+    }
+
+    private ListResponse<T> loadPage(String cursor) {
+        request.setAfter(cursor);
+        ListResponse<T> response = client.executeWithRetries(request);
+        nextCursor = response.getAfter();
+        return response;
+    }
+
+    private synchronized ListenableFuture<ListResponse<T>> takePrefetchedPage() {
+        // If the page after the one we've just consumed hasn't been requested yet (because we
+        // caught up with the background fetches), request it now.
+        if (prefetched.isEmpty() && nextCursor != null) {
+            prefetch(nextCursor);
+        }
+        ListenableFuture<ListResponse<T>> page = prefetched.poll();
+        maybePrefetch();
+        return page;
+    }
+
+    private void prefetch(String cursor) {
+        pendingCursor = null;
+        request.setAfter(cursor);
+        ListenableFuture<ListResponse<T>> page;
+        try {
+            page = client.executeWithRetriesAsync(request);
+        } catch (RuntimeException e) {
+            page = Futures.immediateFailedFuture(e);
+        }
+        final ListenableFuture<ListResponse<T>> requestedPage = page;
+        latestPage = requestedPage;
+        prefetched.add(requestedPage);
+        Futures.addCallback(requestedPage, new FutureCallback<ListResponse<T>>() {
+            @Override
+            public void onSuccess(ListResponse<T> response) {
+                synchronized (PageIterator.this) {
+                    if (requestedPage == latestPage) {
+                        pendingCursor = response.getAfter();
+                        maybePrefetch();
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // The failure is thrown when the consumer reaches this page.
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void maybePrefetch() {
+        if (pendingCursor != null && prefetched.size() < prefetchDepth) {
+            prefetch(pendingCursor);
+        }
+    }
+
+    private static <T> ListResponse<T> getPage(ListenableFuture<ListResponse<T>> page) {
+        try {
+            return Uninterruptibles.getUninterruptibly(page);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+}
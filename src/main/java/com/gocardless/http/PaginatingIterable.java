@@ -2,17 +2,31 @@ package com.gocardless.http;
 
 import java.util.Iterator;
 
-class PaginatingIterable<T> implements Iterable<T> {
+import com.google.common.collect.FluentIterable;
+
+class PaginatingIterable<T> extends FluentIterable<T> {
     private final ListRequest<?, T> request;
     private final HttpClient client;
+    private final int prefetchDepth;
 
     PaginatingIterable(ListRequest<?, T> request, HttpClient client) {
+        this(request, client, client.getPagePrefetchDepth());
+    }
+
+    PaginatingIterable(ListRequest<?, T> request, HttpClient client, int prefetchDepth) {
         this.request = request;
         this.client = client;
+        this.prefetchDepth = prefetchDepth;
     }
 
     @Override
     public Iterator<T> iterator() {
-        return new PaginatingIterator<>(request, client);
+        return new PaginatingIterator<>(request, client, prefetchDepth);
+    }
+
+    // FluentIterable's toString() would iterate through (and so fetch) every page.
+    @Override
+    public String toString() {
+        return "PaginatingIterable{path=" + request.getPathTemplate() + "}";
     }
 }
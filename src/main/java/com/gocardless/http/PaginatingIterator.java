@@ -3,37 +3,33 @@ package com.gocardless.http;
 import java.util.List;
 
 import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 
 class PaginatingIterator<T> extends AbstractIterator<T> {
-    private final ListRequest<?, T> request;
-    private final HttpClient client;
-    private List<T> items;
-    private String nextCursor;
+    private final PageIterator<T> pages;
+    private List<T> items = ImmutableList.of();
+    private int position;
 
-    PaginatingIterator(ListRequest<?, T> request, HttpClient client) {
-        this.request = request;
-        this.client = client;
-        loadPage();
+    PaginatingIterator(ListRequest<?, T> request, HttpClient client, int prefetchDepth) {
+        this.pages = new PageIterator<>(request, client, prefetchDepth);
     }
 
     @Override
     protected T computeNext() {
-        if (items.isEmpty() && nextCursor != null) {
-            loadPage();
+        // Skip over empty pages, so that we only stop once there are no more cursors.
+        while (position == items.size()) {
+            // Drop the exhausted page before fetching the next one, so it can be collected.
+            setPage(ImmutableList.<T>of());
+            if (!pages.hasNext()) {
+                return endOfData();
+            }
+            setPage(pages.next().getItems());
         }
-        if (items.isEmpty()) {
-            return endOfData();
-        }
-        T item = items.get(0);
-        items.remove(0);
-        return item;
+        return items.get(position++);
     }
 
-    private void loadPage() {
-        request.setAfter(nextCursor);
-        ListResponse<T> response = client.executeWithRetries(request);
-        items = Lists.newArrayList(response.getItems());
-        nextCursor = response.getAfter();
+    private void setPage(List<T> page) {
+        items = page;
+        position = 0;
     }
 }
@@ -0,0 +1,339 @@
+package com.gocardless.http;
+
+import java.io.Closeable;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.*;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Lists every item created within a time range by splitting the range into windows on
+ * `created_at`, and walking each window's pages concurrently.
+ *
+ * Any list request which supports `created_at[gte]` and `created_at[lt]` filters can be
+ * exported in this way:
+ *
+ * <pre>
+ * PartitionedExport&lt;Payment&gt; export = new PartitionedExport&lt;&gt;(
+ *         new PartitionedExport.RequestFactory&lt;Payment&gt;() {
+ *             public ListRequest&lt;?, Payment&gt; create(String gte, String lt) {
+ *                 return client.payments().list().withCreatedAtGte(gte)
+ *                         .withCreatedAtLt(lt).withLimit(500);
+ *             }
+ *         }).withCreatedAtRange(from, to).withPartitions(8);
+ * try (PartitionedExport.ExportIterator&lt;Payment&gt; payments = export.execute()) {
+ *     while (payments.hasNext()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> the type of the items being listed.
+ */
+public class PartitionedExport<T> {
+    /**
+     * The default number of windows that the time range is split into.
+     */
+    public static final int DEFAULT_PARTITIONS = 4;
+    /**
+     * The default number of pages buffered for each window before its fetches pause.
+     */
+    public static final int DEFAULT_PAGES_BUFFERED = 4;
+    private final RequestFactory<T> requestFactory;
+    private Date createdAtFrom;
+    private Date createdAtTo;
+    private int partitions = DEFAULT_PARTITIONS;
+    private int parallelism;
+    private int pagesBuffered = DEFAULT_PAGES_BUFFERED;
+    private boolean ordered;
+
+    /**
+     * Constructor.
+     *
+     * @param requestFactory creates the list request for each window
+     */
+    public PartitionedExport(RequestFactory<T> requestFactory) {
+        this.requestFactory = requestFactory;
+    }
+
+    /**
+     * Configures the time range to export.  Items created at or after `from`, and before
+     * `to`, will be listed.
+     */
+    public PartitionedExport<T> withCreatedAtRange(Date from, Date to) {
+        Preconditions.checkArgument(from.before(to), "from must be before to");
+        this.createdAtFrom = from;
+        this.createdAtTo = to;
+        return this;
+    }
+
+    /**
+     * Configures the number of windows that the time range is split into.  Defaults to 4.
+     */
+    public PartitionedExport<T> withPartitions(int partitions) {
+        Preconditions.checkArgument(partitions > 0, "partitions must be positive");
+        this.partitions = partitions;
+        return this;
+    }
+
+    /**
+     * Configures the number of windows which are fetched at once.  Defaults to the number of
+     * partitions.
+     */
+    public PartitionedExport<T> withParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Configures the number of pages which can be fetched for each window before they are
+     * consumed.  Defaults to 4.
+     */
+    public PartitionedExport<T> withPagesBuffered(int pagesBuffered) {
+        Preconditions.checkArgument(pagesBuffered > 0, "pagesBuffered must be positive");
+        this.pagesBuffered = pagesBuffered;
+        return this;
+    }
+
+    /**
+     * Configures whether windows are delivered in order.  If true, items are returned newest
+     * first, in the same order as walking the whole range with a single cursor: every item
+     * from the latest window is returned before any item from the one before it, and each
+     * window's items are returned in the order the API lists them.  Windows are still fetched
+     * concurrently, but a window can only get `pagesBuffered` pages ahead of the consumer.  If
+     * false (the default), items are returned as soon as their page arrives.
+     */
+    public PartitionedExport<T> withOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Starts the export.
+     *
+     * Returns an iterator over the exported items.  The iterator should be closed if it is
+     * abandoned before reaching the end, to stop any fetches still in progress.
+     */
+    public ExportIterator<T> execute() {
+        Preconditions.checkState(createdAtFrom != null, "no created_at range configured");
+        ExportIterator<T> iterator = new ExportIterator<>(partitions, pagesBuffered, ordered,
+                parallelism > 0 ? parallelism : partitions);
+        long from = createdAtFrom.getTime();
+        long to = createdAtTo.getTime();
+        long windowSize = Math.max(1, (to - from) / partitions);
+        // The API lists items newest first, so the latest window is submitted, and delivered,
+        // first.
+        for (int i = 0; i < partitions; i++) {
+            int window = partitions - 1 - i;
+            long windowFrom = Math.min(to, from + window * windowSize);
+            long windowTo =
+                    window == partitions - 1 ? to : Math.min(to, windowFrom + windowSize);
+            ListRequest<?, T> request =
+                    requestFactory.create(formatDate(windowFrom), formatDate(windowTo));
+            iterator.submit(i, request);
+        }
+        return iterator;
+    }
+
+    private static String formatDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    /**
+     * Creates the list request for a single window of an export.
+     *
+     * @param <T> the type of the items being listed.
+     */
+    public interface RequestFactory<T> {
+        /**
+         * Returns a request listing items created within the given window.
+         *
+         * @param createdAtGte the start of the window, to be passed to `withCreatedAtGte`
+         * @param createdAtLt the end of the window, to be passed to `withCreatedAtLt`
+         */
+        ListRequest<?, T> create(String createdAtGte, String createdAtLt);
+    }
+
+    /**
+     * An iterator over the items in an export.
+     *
+     * @param <T> the type of the items being listed.
+     */
+    public static final class ExportIterator<T> extends AbstractIterator<T> implements
+            Closeable {
+        private final ExecutorService executor;
+        private final boolean ordered;
+        private final List<BlockingQueue<Chunk<T>>> queues;
+        private final Set<Future<?>> inFlight =
+                Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+        private volatile boolean closed;
+        private int currentWindow;
+        private int windowsRemaining;
+        private List<T> items = ImmutableList.of();
+        private int position;
+
+        private ExportIterator(int partitions, int pagesBuffered, boolean ordered,
+                int parallelism) {
+            this.executor =
+                    Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                            .setDaemon(true).setNameFormat("gocardless-export-%d").build());
+            this.ordered = ordered;
+            this.windowsRemaining = partitions;
+            ImmutableList.Builder<BlockingQueue<Chunk<T>>> queues = ImmutableList.builder();
+            if (ordered) {
+                for (int i = 0; i < partitions; i++) {
+                    queues.add(new ArrayBlockingQueue<Chunk<T>>(pagesBuffered + 1));
+                }
+            } else {
+                BlockingQueue<Chunk<T>> queue =
+                        new ArrayBlockingQueue<>(pagesBuffered * partitions + partitions);
+                for (int i = 0; i < partitions; i++) {
+                    queues.add(queue);
+                }
+            }
+            this.queues = queues.build();
+        }
+
+        private void submit(int window, final ListRequest<?, T> request) {
+            final BlockingQueue<Chunk<T>> queue = queues.get(window);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    HttpClient client = request.getHttpClient();
+                    try {
+                        Chunk<T> last;
+                        try {
+                            String cursor = null;
+                            do {
+                                request.setAfter(cursor);
+                                ListResponse<T> page = fetch(client, request);
+                                queue.put(Chunk.page(page.getItems()));
+                                cursor = page.getAfter();
+                            } while (cursor != null);
+                            last = Chunk.end();
+                        } catch (ExecutionException e) {
+                            Throwable cause = e.getCause();
+                            last = Chunk.failure(cause instanceof RuntimeException
+                                    ? (RuntimeException) cause
+                                    : new UncheckedExecutionException(cause));
+                        } catch (RuntimeException e) {
+                            last = Chunk.failure(e);
+                        }
+                        queue.put(last);
+                    } catch (InterruptedException | CancellationException e) {
+                        // The export has been closed.
+                    }
+                }
+            });
+        }
+
+        /**
+         * Fetches a page, keeping track of the request while it's in flight so that closing
+         * the export can cancel it.
+         */
+        private ListResponse<T> fetch(HttpClient client, ListRequest<?, T> request)
+                throws InterruptedException, ExecutionException {
+            ListenableFuture<ListResponse<T>> future = client.executeWithRetriesAsync(request);
+            inFlight.add(future);
+            try {
+                if (closed) {
+                    future.cancel(true);
+                }
+                return future.get();
+            } finally {
+                inFlight.remove(future);
+            }
+        }
+
+        @Override
+        protected T computeNext() {
+            while (position == items.size()) {
+                items = ImmutableList.of();
+                position = 0;
+                if (windowsRemaining == 0) {
+                    close();
+                    return endOfData();
+                }
+                if (closed) {
+                    return endOfData();
+                }
+                Chunk<T> chunk = Uninterruptibles.takeUninterruptibly(queues.get(currentWindow));
+                if (chunk.failure != null) {
+                    close();
+                    throw chunk.failure;
+                } else if (chunk == Chunk.<T>closed()) {
+                    return endOfData();
+                } else if (chunk.items == null) {
+                    windowsRemaining--;
+                    if (ordered) {
+                        currentWindow++;
+                    }
+                } else {
+                    items = chunk.items;
+                }
+            }
+            return items.get(position++);
+        }
+
+        /**
+         * Stops any fetches still in progress, cancelling their requests. If another thread is
+         * waiting for the next item, it sees the end of the export.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            for (Future<?> future : inFlight) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            // A consumer can only be waiting on an empty queue, so there's always room to wake
+            // it. Full queues are skipped, as nothing can be waiting on them.
+            for (BlockingQueue<Chunk<T>> queue : ImmutableSet.copyOf(queues)) {
+                queue.offer(Chunk.<T>closed());
+            }
+        }
+    }
+
+    private static final class Chunk<T> {
+        private static final Chunk<Object> CLOSED = new Chunk<>(null, null);
+        private final List<T> items;
+        private final RuntimeException failure;
+
+        private Chunk(List<T> items, RuntimeException failure) {
+            this.items = items;
+            this.failure = failure;
+        }
+
+        private static <T> Chunk<T> page(List<T> items) {
+            return new Chunk<>(items, null);
+        }
+
+        private static <T> Chunk<T> end() {
+            return new Chunk<>(null, null);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Chunk<T> closed() {
+            return (Chunk<T>) CLOSED;
+        }
+
+        private static <T> Chunk<T> failure(RuntimeException failure) {
+            return new Chunk<>(null, failure);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.gocardless.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.google.common.primitives.Longs;
+
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Response;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Paces requests so that they don't exceed the API's rate limit.
+ *
+ * Each response tells us how many requests remain in the current window
+ * (`RateLimit-Remaining`) and when it ends (`RateLimit-Reset`). From these we work out the
+ * interval which spreads the remaining requests evenly over the rest of the window, and
+ * hand out one slot per interval to requests on any thread. Slots are claimed with a
+ * compare-and-set, so no locks are taken. Until the first response arrives, requests are
+ * not paced.
+ */
+class RateLimitInterceptor implements Interceptor {
+    private final Ticker ticker;
+    private final AtomicLong nextSlotNanos;
+    private final AtomicLong intervalNanos = new AtomicLong();
+
+    RateLimitInterceptor() {
+        this(Ticker.systemTicker());
+    }
+
+    RateLimitInterceptor(Ticker ticker) {
+        this.ticker = ticker;
+        this.nextSlotNanos = new AtomicLong(ticker.read());
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            try {
+                NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for rate limit");
+            }
+        }
+        Response response = chain.proceed(chain.request());
+        update(response.headers());
+        return response;
+    }
+
+    /**
+     * Claims the next free slot, and returns how long to wait until it starts.
+     */
+    long reserve() {
+        while (true) {
+            long now = ticker.read();
+            long next = nextSlotNanos.get();
+            long slot = Math.max(now, next);
+            if (nextSlotNanos.compareAndSet(next, slot + intervalNanos.get())) {
+                return slot - now;
+            }
+        }
+    }
+
+    /**
+     * Adapts the pacing to the rate limit headers of a response.
+     */
+    void update(Headers headers) {
+        String remainingHeader = headers.get("RateLimit-Remaining");
+        Long remaining = remainingHeader != null ? Longs.tryParse(remainingHeader) : null;
+        long untilResetNanos = getNanosUntilReset(headers);
+        if (remaining == null || untilResetNanos < 0) {
+            return;
+        }
+        if (remaining > 0) {
+            intervalNanos.set(untilResetNanos / remaining);
+        } else {
+            // Nothing more can be sent until the window resets.
+            long reset = ticker.read() + untilResetNanos;
+            long next;
+            do {
+                next = nextSlotNanos.get();
+            } while (next < reset && !nextSlotNanos.compareAndSet(next, reset));
+        }
+    }
+
+    private static long getNanosUntilReset(Headers headers) {
+        String reset = headers.get("RateLimit-Reset");
+        if (reset == null) {
+            return -1;
+        }
+        Long seconds = Longs.tryParse(reset);
+        if (seconds != null) {
+            return SECONDS.toNanos(seconds);
+        }
+        Date resetAt = headers.getDate("RateLimit-Reset");
+        if (resetAt == null) {
+            return -1;
+        }
+        return MILLISECONDS.toNanos(Math.max(0, resetAt.getTime() - System.currentTimeMillis()));
+    }
+}
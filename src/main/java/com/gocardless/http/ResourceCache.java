@@ -0,0 +1,406 @@
+package com.gocardless.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.HttpUrl;
+import com.squareup.okhttp.Request;
+
+/**
+ * A bounded, in-memory cache of resources fetched with `execute()` on a {@link GetRequest},
+ * for resources which are read often but change rarely (such as creditors and mandates).
+ *
+ * Only the resource types configured with {@link Builder#withResource} are cached, each for
+ * its own time to live. Once an entry's time to live has passed it is fetched again, unless
+ * the API returned an `ETag` or `Last-Modified` header with it, in which case the request is
+ * made conditional, and a `304 Not Modified` response renews the entry without parsing a new
+ * body. When the cache is full, the least recently used entries are evicted.
+ *
+ * Updates and actions made through the same client remove the affected resource from the
+ * cache. Changes made elsewhere are only seen once an entry expires, or after calling
+ * {@link #invalidate}.
+ *
+ * <pre>
+ * ResourceCache cache = ResourceCache.newBuilder()
+ *         .withMaximumSize(10000)
+ *         .withResource("creditors", 1, TimeUnit.HOURS)
+ *         .withResource("mandates", 5, TimeUnit.MINUTES)
+ *         .build();
+ * </pre>
+ */
+public final class ResourceCache {
+    private final Cache<Key, Entry> entries;
+    // The keys cached for each resource, by type and ID, so that invalidating a resource
+    // doesn't have to scan the whole cache.
+    private final SetMultimap<String, Key> keysByResource =
+            Multimaps.synchronizedSetMultimap(HashMultimap.<String, Key>create());
+    // Each invalidation takes the next version. A response is only stored if its resource
+    // hasn't been invalidated since the request for it started, so that a response which was
+    // in flight during an update can't put the old resource back.
+    private final AtomicLong version = new AtomicLong();
+    private final Cache<String, Long> invalidatedAtVersion;
+    private volatile long allInvalidatedAtVersion;
+    private final Map<String, Long> timeToLiveNanos;
+    private final Ticker ticker;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private ResourceCache(Builder builder) {
+        this.timeToLiveNanos = ImmutableMap.copyOf(builder.timeToLiveNanos);
+        this.ticker = builder.ticker;
+        this.entries = CacheBuilder.newBuilder().maximumSize(builder.maximumSize)
+                .removalListener(new RemovalListener<Key, Entry>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<Key, Entry> notification) {
+                        if (notification.wasEvicted()) {
+                            evictionCount.incrementAndGet();
+                        }
+                        if (notification.getCause() != RemovalCause.REPLACED) {
+                            unindex(notification.getKey());
+                        }
+                    }
+                }).build();
+        this.invalidatedAtVersion =
+                CacheBuilder.newBuilder().maximumSize(builder.maximumSize).build();
+    }
+
+    /**
+     * Returns a builder for a resource cache.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Removes a resource from the cache, so that it's fetched from the API next time.
+     *
+     * @param resourceType the type of the resource, as passed to {@link Builder#withResource}
+     * @param id the ID of the resource
+     */
+    public void invalidate(String resourceType, String id) {
+        String resource = resource(resourceType, id);
+        invalidatedAtVersion.put(resource, version.incrementAndGet());
+        entries.invalidateAll(keysByResource.removeAll(resource));
+    }
+
+    /**
+     * Removes every resource from the cache.
+     */
+    public void invalidateAll() {
+        allInvalidatedAtVersion = version.incrementAndGet();
+        entries.invalidateAll();
+    }
+
+    /**
+     * Returns the number of resources in the cache, including expired ones awaiting
+     * revalidation.
+     */
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns a snapshot of the cache's statistics.
+     */
+    public Stats getStats() {
+        return new Stats(hitCount.get(), missCount.get(), revalidationCount.get(),
+                evictionCount.get());
+    }
+
+    boolean isCached(String resourceType) {
+        return timeToLiveNanos.containsKey(resourceType);
+    }
+
+    /**
+     * Returns the entry for a key which is still fresh, or which has expired but can be
+     * revalidated, or null if there is neither.
+     */
+    Entry get(Key key) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null && isFresh(key, entry)) {
+            hitCount.incrementAndGet();
+            return entry;
+        }
+        missCount.incrementAndGet();
+        if (entry != null && !entry.hasValidators()) {
+            entries.invalidate(key);
+            return null;
+        }
+        return entry;
+    }
+
+    boolean isFresh(Key key, Entry entry) {
+        return ticker.read() - entry.storedAtNanos < timeToLiveNanos.get(key.resourceType);
+    }
+
+    /**
+     * Returns the current version, to be passed to {@link #put} or {@link #revalidated} once
+     * the request which is about to be made completes.
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Stores a resource fetched by a request which started at the given version, unless the
+     * resource has been invalidated since.
+     */
+    void put(Key key, long requestVersion, Object resource, Headers headers) {
+        store(key, requestVersion, new Entry(resource, headers.get("ETag"),
+                headers.get("Last-Modified"), ticker.read()));
+    }
+
+    /**
+     * Renews an entry after the API has confirmed that it hasn't changed, unless the resource
+     * has been invalidated since the request started.
+     */
+    void revalidated(Key key, long requestVersion, Entry entry, Headers headers) {
+        revalidationCount.incrementAndGet();
+        String etag = headers.get("ETag");
+        String lastModified = headers.get("Last-Modified");
+        store(key, requestVersion, new Entry(entry.resource, etag != null ? etag : entry.etag,
+                lastModified != null ? lastModified : entry.lastModified, ticker.read()));
+    }
+
+    private void store(Key key, long requestVersion, Entry entry) {
+        if (isInvalidatedSince(key, requestVersion)) {
+            return;
+        }
+        entries.put(key, entry);
+        if (key.id != null) {
+            keysByResource.put(key.resource(), key);
+        }
+        // An invalidation between the check above and indexing the key wouldn't have found
+        // it, so check again now that it can be found.
+        if (isInvalidatedSince(key, requestVersion)) {
+            entries.invalidate(key);
+        }
+    }
+
+    private boolean isInvalidatedSince(Key key, long requestVersion) {
+        if (allInvalidatedAtVersion > requestVersion) {
+            return true;
+        }
+        if (key.id == null) {
+            return false;
+        }
+        Long invalidated = invalidatedAtVersion.getIfPresent(key.resource());
+        return invalidated != null && invalidated > requestVersion;
+    }
+
+    private void unindex(Key key) {
+        if (key.id == null) {
+            return;
+        }
+        keysByResource.remove(key.resource(), key);
+        // The same key may have been stored again while it was being removed.
+        if (entries.asMap().containsKey(key)) {
+            keysByResource.put(key.resource(), key);
+        }
+    }
+
+    private static String resource(String resourceType, String id) {
+        return resourceType + "/" + id;
+    }
+
+    static Key keyFor(ApiRequest<?> request, HttpUrl url) {
+        return new Key(request.getEnvelope(), request.getPathParams().get("identity"),
+                url.toString(), request.getCustomHeaders());
+    }
+
+    static final class Key {
+        private final String resourceType;
+        private final String id;
+        private final String url;
+        private final Map<String, String> headers;
+
+        private Key(String resourceType, String id, String url, Map<String, String> headers) {
+            this.resourceType = resourceType;
+            this.id = id;
+            this.url = url;
+            this.headers = headers;
+        }
+
+        private String resource() {
+            return ResourceCache.resource(resourceType, id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return url.equals(key.url) && resourceType.equals(key.resourceType)
+                    && headers.equals(key.headers);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceType, url, headers);
+        }
+    }
+
+    static final class Entry {
+        private final Object resource;
+        private final String etag;
+        private final String lastModified;
+        private final long storedAtNanos;
+
+        private Entry(Object resource, String etag, String lastModified, long storedAtNanos) {
+            this.resource = resource;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAtNanos = storedAtNanos;
+        }
+
+        Object getResource() {
+            return resource;
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        /**
+         * Makes a request conditional on the resource having changed since it was cached.
+         */
+        Request addValidators(Request request) {
+            Request.Builder builder = request.newBuilder();
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Statistics on how a {@link ResourceCache} has been used.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long revalidationCount;
+        private final long evictionCount;
+
+        private Stats(long hitCount, long missCount, long revalidationCount,
+                long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.revalidationCount = revalidationCount;
+            this.evictionCount = evictionCount;
+        }
+
+        /**
+         * Returns the number of lookups which were served from the cache without a request.
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Returns the number of lookups which needed a request, including conditional ones.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * Returns the number of conditional requests which found the resource unchanged.
+         */
+        public long getRevalidationCount() {
+            return revalidationCount;
+        }
+
+        /**
+         * Returns the number of entries evicted to keep the cache within its maximum size.
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * Returns the proportion of lookups which were hits, or 1 if there have been none.
+         */
+        public double getHitRate() {
+            long lookups = hitCount + missCount;
+            return lookups == 0 ? 1.0 : (double) hitCount / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ResourceCache.Stats{hits=%d, misses=%d, revalidations=%d, "
+                    + "evictions=%d}", hitCount, missCount, revalidationCount, evictionCount);
+        }
+    }
+
+    /**
+     * Builder for {@link ResourceCache}.
+     */
+    public static final class Builder {
+        private final Map<String, Long> timeToLiveNanos = new LinkedHashMap<>();
+        private long maximumSize = 10000;
+        private Ticker ticker = Ticker.systemTicker();
+
+        private Builder() {
+        }
+
+        /**
+         * Configures the maximum number of resources kept in the cache. Defaults to 10000.
+         */
+        public Builder withMaximumSize(long maximumSize) {
+            Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Configures a type of resource to cache, and how long each one is served from the
+         * cache before it's fetched or revalidated. If the same type is configured more than
+         * once, the last call wins.
+         *
+         * @param resourceType the type of resource, as named in the API's URLs (for example
+         *                     `creditors` or `creditor_bank_accounts`)
+         * @param timeToLive how long to serve a resource from the cache
+         * @param timeUnit the unit of timeToLive
+         */
+        public Builder withResource(String resourceType, long timeToLive, TimeUnit timeUnit) {
+            Preconditions.checkArgument(timeToLive > 0, "timeToLive must be positive");
+            timeToLiveNanos.put(resourceType, timeUnit.toNanos(timeToLive));
+            return this;
+        }
+
+        Builder withTicker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * Builds the cache.
+         */
+        public ResourceCache build() {
+            return new ResourceCache(this);
+        }
+    }
+}
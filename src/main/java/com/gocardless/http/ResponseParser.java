@@ -1,5 +1,7 @@
 package com.gocardless.http;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 import com.gocardless.errors.ApiErrorResponse;
@@ -10,6 +12,8 @@ import com.gocardless.errors.MalformedResponseException;
 import com.google.common.collect.ImmutableList;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
 final class ResponseParser {
     private final Gson gson;
@@ -37,18 +41,88 @@ final class ResponseParser {
         return ImmutableList.copyOf(items);
     }
 
-    <T> ImmutableList<T> parseMultiple(JsonObject json, String envelope, TypeToken<List<T>> clazz) {
-        JsonArray array = json.getAsJsonArray(envelope);
-        List<T> items = gson.fromJson(array, clazz.getType());
-        return ImmutableList.copyOf(items);
+    /**
+     * Parses a single item from a response body as it is read, without building a JSON tree.
+     */
+    <T> T parseSingle(Reader responseBody, String envelope, Class<T> clazz) throws IOException {
+        JsonReader reader = new JsonReader(responseBody);
+        T item = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(envelope)) {
+                    item = gson.fromJson(reader, clazz);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (MalformedJsonException | JsonParseException | IllegalStateException e) {
+            throw new MalformedResponseException(null);
+        }
+        return item;
     }
 
-    <T> ListResponse<T> parsePage(String responseBody, String envelope, TypeToken<List<T>> clazz) {
-        JsonObject json = new JsonParser().parse(responseBody).getAsJsonObject();
-        List<T> items = parseMultiple(json, envelope, clazz);
-        JsonObject metaJson = json.getAsJsonObject("meta");
-        ListResponse.Meta meta = gson.fromJson(metaJson, ListResponse.Meta.class);
-        return new ListResponse<>(ImmutableList.copyOf(items), meta);
+    /**
+     * Parses a page of items from a response body as it is read, binding each item and the
+     * page's cursors in a single pass without building a JSON tree. Only the included
+     * resources, if there are any, are read into a tree, so that they can be indexed by ID.
+     */
+    <T> ListResponse<T> parsePage(Reader responseBody, String envelope, TypeToken<List<T>> clazz)
+            throws IOException {
+        JsonReader reader = new JsonReader(responseBody);
+        List<T> items = null;
+        ListResponse.Meta meta = null;
+        LinkedResources linked = LinkedResources.EMPTY;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals(envelope)) {
+                    items = gson.getAdapter(clazz).read(reader);
+                } else if (name.equals("meta")) {
+                    meta = gson.fromJson(reader, ListResponse.Meta.class);
+                } else if (name.equals("linked")) {
+                    JsonObject linkedJson = gson.fromJson(reader, JsonObject.class);
+                    linked = LinkedResources.fromJson(linkedJson, gson);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (MalformedJsonException | JsonParseException | IllegalStateException e) {
+            throw new MalformedResponseException(null);
+        }
+        if (items == null) {
+            throw new MalformedResponseException(null);
+        }
+        return new ListResponse<>(ImmutableList.copyOf(items), meta, linked);
+    }
+
+    /**
+     * Parses a list of items from a body as it is read, without building a JSON tree.
+     */
+    <T> ImmutableList<T> parseMultiple(Reader body, String envelope, TypeToken<List<T>> clazz)
+            throws IOException {
+        JsonReader reader = new JsonReader(body);
+        List<T> items = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(envelope)) {
+                    items = gson.getAdapter(clazz).read(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (MalformedJsonException | JsonParseException | IllegalStateException e) {
+            throw new MalformedResponseException(null);
+        }
+        if (items == null) {
+            throw new MalformedResponseException(null);
+        }
+        return ImmutableList.copyOf(items);
     }
 
     GoCardlessApiException parseError(String responseBody) {
@@ -0,0 +1,174 @@
+package com.gocardless.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Controls how requests which are safe to retry are retried after a network error, a rate
+ * limit response (429) or a server error (5xx).
+ *
+ * Retries back off exponentially with "full jitter": the wait before each retry is chosen at
+ * random between zero and an exponentially growing cap, so that many clients failing at the
+ * same time don't retry in lockstep. If the API says when to retry, with a `Retry-After`
+ * header, or a `RateLimit-Reset` header on a rate limit response, that is used instead.
+ *
+ * <pre>
+ * RetryPolicy policy = RetryPolicy.newBuilder()
+ *         .withMaxAttempts(5)
+ *         .withInitialBackoff(200, TimeUnit.MILLISECONDS)
+ *         .withMaxElapsedTime(10, TimeUnit.SECONDS)
+ *         .build();
+ * </pre>
+ */
+public final class RetryPolicy {
+    /**
+     * The policy used unless another is configured: up to 3 attempts, backing off from 500ms,
+     * and giving up after 30 seconds.
+     */
+    public static final RetryPolicy DEFAULT = newBuilder().build();
+    /**
+     * A policy which never retries.
+     */
+    public static final RetryPolicy NONE = newBuilder().withMaxAttempts(1).build();
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final long maxElapsedTimeMillis;
+    private final boolean retryRateLimited;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.multiplier = builder.multiplier;
+        this.maxElapsedTimeMillis = builder.maxElapsedTimeMillis;
+        this.retryRateLimited = builder.retryRateLimited;
+    }
+
+    /**
+     * Returns a builder for a retry policy, starting from the defaults.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the maximum number of times a request is attempted, including the first.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns how long to wait before the given retry, or -1 if the request should not be
+     * retried.
+     *
+     * @param attempt the number of attempts made so far
+     * @param elapsedMillis the time since the first attempt started
+     * @param retryAfterMillis the wait requested by the API, or -1 if it didn't request one
+     */
+    long getDelayMillis(int attempt, long elapsedMillis, long retryAfterMillis) {
+        if (attempt >= maxAttempts) {
+            return -1;
+        }
+        long delay = retryAfterMillis >= 0 ? retryAfterMillis : backoffMillis(attempt);
+        if (elapsedMillis + delay > maxElapsedTimeMillis) {
+            return -1;
+        }
+        return delay;
+    }
+
+    boolean isRetryableStatus(int statusCode) {
+        return statusCode >= 500 || (retryRateLimited && statusCode == 429);
+    }
+
+    private long backoffMillis(int attempt) {
+        double cap = initialBackoffMillis * Math.pow(multiplier, attempt - 1);
+        long bound = (long) Math.min(maxBackoffMillis, cap);
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    /**
+     * Builder for {@link RetryPolicy}.
+     */
+    public static final class Builder {
+        private int maxAttempts = HttpClient.MAX_RETRIES;
+        private long initialBackoffMillis = 500;
+        private long maxBackoffMillis = 10000;
+        private double multiplier = 2;
+        private long maxElapsedTimeMillis = 30000;
+        private boolean retryRateLimited = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Configures the maximum number of times a request is attempted, including the first.
+         * Defaults to 3.
+         */
+        public Builder withMaxAttempts(int maxAttempts) {
+            Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Configures the cap on the wait before the first retry. Defaults to 500ms.
+         */
+        public Builder withInitialBackoff(long initialBackoff, TimeUnit timeUnit) {
+            Preconditions.checkArgument(initialBackoff >= 0,
+                    "initialBackoff must not be negative");
+            this.initialBackoffMillis = timeUnit.toMillis(initialBackoff);
+            return this;
+        }
+
+        /**
+         * Configures the largest cap on the wait between retries. Defaults to 10 seconds.
+         */
+        public Builder withMaxBackoff(long maxBackoff, TimeUnit timeUnit) {
+            Preconditions.checkArgument(maxBackoff >= 0, "maxBackoff must not be negative");
+            this.maxBackoffMillis = timeUnit.toMillis(maxBackoff);
+            return this;
+        }
+
+        /**
+         * Configures the factor by which the cap on the wait grows after each retry.
+         * Defaults to 2.
+         */
+        public Builder withMultiplier(double multiplier) {
+            Preconditions.checkArgument(multiplier >= 1, "multiplier must be at least 1");
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Configures the time after the first attempt beyond which no retry will be started,
+         * including any wait requested by the API. Defaults to 30 seconds.
+         */
+        public Builder withMaxElapsedTime(long maxElapsedTime, TimeUnit timeUnit) {
+            Preconditions.checkArgument(maxElapsedTime >= 0,
+                    "maxElapsedTime must not be negative");
+            this.maxElapsedTimeMillis = timeUnit.toMillis(maxElapsedTime);
+            return this;
+        }
+
+        /**
+         * Configures whether requests which are rejected for exceeding the rate limit are
+         * retried. Defaults to true.
+         */
+        public Builder withRetryRateLimited(boolean retryRateLimited) {
+            this.retryRateLimited = retryRateLimited;
+            return this;
+        }
+
+        /**
+         * Builds the retry policy.
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
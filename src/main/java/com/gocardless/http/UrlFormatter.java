@@ -1,13 +1,20 @@
 package com.gocardless.http;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 
 import com.squareup.okhttp.HttpUrl;
 
 import static com.google.common.net.UrlEscapers.urlPathSegmentEscaper;
 
 final class UrlFormatter {
+    private static final Splitter PATH_SPLITTER = Splitter.on('/');
     private final HttpUrl baseUrl;
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<>();
 
     UrlFormatter(String baseUrl) {
         this.baseUrl = HttpUrl.parse(baseUrl);
@@ -15,16 +22,62 @@ final class UrlFormatter {
 
     HttpUrl formatUrl(String template, Map<String, String> pathParams,
             Map<String, Object> queryParams) {
-        String path = template;
-        for (Map.Entry<String, String> entry : pathParams.entrySet()) {
-            path =
-                    path.replace(":" + entry.getKey(),
-                            urlPathSegmentEscaper().escape(entry.getValue()));
-        }
-        HttpUrl.Builder builder = baseUrl.resolve(path).newBuilder();
+        HttpUrl.Builder builder = getTemplate(template).format(pathParams);
         for (Map.Entry<String, Object> param : queryParams.entrySet()) {
             builder.addQueryParameter(param.getKey(), param.getValue().toString());
         }
         return builder.build();
     }
+
+    private Template getTemplate(String template) {
+        Template compiled = templates.get(template);
+        if (compiled == null) {
+            compiled = new Template(baseUrl, template);
+            templates.putIfAbsent(template, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * A path template (such as `payments/:identity/actions/cancel`), split into its segments
+     * once, along with the URL it's relative to.
+     */
+    private static final class Template {
+        private final HttpUrl root;
+        private final ImmutableList<String> segments;
+        private final ImmutableList<String> paramNames;
+
+        Template(HttpUrl baseUrl, String template) {
+            // Templates are resolved against the base URL in the same way as relative links.
+            String path = template;
+            if (template.startsWith("/")) {
+                this.root = baseUrl.resolve("/");
+                path = template.substring(1);
+            } else {
+                this.root = baseUrl.resolve("./");
+            }
+            ImmutableList.Builder<String> segments = ImmutableList.builder();
+            ImmutableList.Builder<String> paramNames = ImmutableList.builder();
+            for (String segment : PATH_SPLITTER.split(path)) {
+                segments.add(segment);
+                paramNames.add(segment.startsWith(":") ? segment.substring(1) : "");
+            }
+            this.segments = segments.build();
+            this.paramNames = paramNames.build();
+        }
+
+        HttpUrl.Builder format(Map<String, String> pathParams) {
+            HttpUrl.Builder builder = root.newBuilder();
+            for (int i = 0; i < segments.size(); i++) {
+                String value = paramNames.get(i).isEmpty() ? null
+                        : pathParams.get(paramNames.get(i));
+                if (value != null) {
+                    builder.addEncodedPathSegment(urlPathSegmentEscaper().escape(value));
+                } else {
+                    builder.addEncodedPathSegment(segments.get(i));
+                }
+            }
+            return builder;
+        }
+    }
 }
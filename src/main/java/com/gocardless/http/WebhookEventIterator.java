@@ -0,0 +1,79 @@
+package com.gocardless.http;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.gocardless.errors.MalformedResponseException;
+import com.gocardless.resources.Event;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * An iterator over the events in a webhook, which parses each event from the request body
+ * only when it's asked for. However many events a webhook contains, only one is held in
+ * memory at a time, and the first can be handled before the rest have been read.
+ *
+ * Obtain one from {@link WebhookParser#iterate(Reader)} or
+ * {@link com.gocardless.Webhook#iterate(byte[], String, String)}. Closing the iterator closes
+ * the underlying reader.
+ */
+public final class WebhookEventIterator extends AbstractIterator<Event> implements Closeable {
+    private final JsonReader reader;
+    private final TypeAdapter<Event> adapter;
+    private boolean started;
+
+    WebhookEventIterator(Reader requestBody, TypeAdapter<Event> adapter) {
+        this.reader = new JsonReader(requestBody);
+        this.adapter = adapter;
+    }
+
+    @Override
+    protected Event computeNext() {
+        try {
+            if (!started) {
+                started = true;
+                if (!findEvents()) {
+                    throw new MalformedResponseException(null);
+                }
+            }
+            if (!reader.hasNext()) {
+                // The rest of the body isn't needed.
+                reader.endArray();
+                return endOfData();
+            }
+            return adapter.read(reader);
+        } catch (MalformedJsonException | EOFException | JsonParseException
+                | IllegalStateException e) {
+            throw new MalformedResponseException(null);
+        } catch (IOException e) {
+            throw new GoCardlessNetworkException("Failed to read webhook body", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Moves the reader to the start of the `events` array, and returns whether it was found.
+     */
+    private boolean findEvents() throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("events") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+}
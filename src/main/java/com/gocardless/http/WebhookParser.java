@@ -1,5 +1,7 @@
 package com.gocardless.http;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 import com.gocardless.resources.Event;
@@ -8,13 +10,75 @@ import com.google.common.collect.ImmutableList;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
 
+/**
+ * Parses the bodies of webhooks into events.
+ *
+ * Instances are thread-safe, so one can be shared by every thread handling webhooks. The
+ * static {@link #parse(String)} uses a single shared instance, and
+ * {@link com.gocardless.GoCardlessClient#webhookParser()} returns one configured in the same
+ * way as the client.
+ */
 public final class WebhookParser {
-    private WebhookParser() {}
+    private static final TypeToken<List<Event>> EVENT_LIST_TYPE = new TypeToken<List<Event>>() {};
+    private static final WebhookParser DEFAULT = new WebhookParser(GsonFactory.build());
+    private final ResponseParser responseParser;
+    private final TypeAdapter<Event> eventAdapter;
 
+    WebhookParser(Gson gson) {
+        this.responseParser = new ResponseParser(gson);
+        this.eventAdapter = gson.getAdapter(Event.class);
+    }
+
+    /**
+     * Returns the shared parser used by the static methods of this class and of
+     * {@link com.gocardless.Webhook}.
+     */
+    public static WebhookParser shared() {
+        return DEFAULT;
+    }
+
+    /**
+     * Parses a webhook's request body into events, using a shared parser.
+     */
     public static ImmutableList<Event> parse(String responseBody) {
-        Gson gson = GsonFactory.build();
-        ResponseParser responseParser = new ResponseParser(gson);
-        return responseParser
-                .parseMultiple(responseBody, "events", new TypeToken<List<Event>>() {});
+        return DEFAULT.parseEvents(responseBody);
+    }
+
+    /**
+     * Parses a webhook's request body into events, as it is read, using a shared parser.
+     */
+    public static ImmutableList<Event> parse(Reader requestBody) throws IOException {
+        return DEFAULT.parseEvents(requestBody);
+    }
+
+    /**
+     * Returns an iterator which parses a webhook's events one at a time as they're read,
+     * using a shared parser.
+     */
+    public static WebhookEventIterator iterate(Reader requestBody) {
+        return DEFAULT.iterateEvents(requestBody);
+    }
+
+    /**
+     * Parses a webhook's request body into events.
+     */
+    public ImmutableList<Event> parseEvents(String responseBody) {
+        return responseParser.parseMultiple(responseBody, "events", EVENT_LIST_TYPE);
+    }
+
+    /**
+     * Parses a webhook's request body into events as it is read, without first reading it
+     * into a string.
+     */
+    public ImmutableList<Event> parseEvents(Reader requestBody) throws IOException {
+        return responseParser.parseMultiple(requestBody, "events", EVENT_LIST_TYPE);
+    }
+
+    /**
+     * Returns an iterator which parses a webhook's events one at a time as they're read, so
+     * that the whole webhook is never held in memory as events.
+     */
+    public WebhookEventIterator iterateEvents(Reader requestBody) {
+        return new WebhookEventIterator(requestBody, eventAdapter);
     }
 }
@@ -242,6 +242,11 @@ public class CreditorBankAccountService {
             return this;
         }
 
+        public CreditorBankAccountCreateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "creditor_bank_accounts";
@@ -395,6 +400,11 @@ public class CreditorBankAccountService {
             return this;
         }
 
+        public CreditorBankAccountListRequest<S> withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, Object> getQueryParams() {
             ImmutableMap.Builder<String, Object> params = ImmutableMap.builder();
@@ -502,6 +512,11 @@ public class CreditorBankAccountService {
             return this;
         }
 
+        public CreditorBankAccountGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -181,6 +181,11 @@ public class CreditorService {
             return this;
         }
 
+        public CreditorCreateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "creditors";
@@ -292,6 +297,11 @@ public class CreditorService {
             return this;
         }
 
+        public CreditorListRequest<S> withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, Object> getQueryParams() {
             ImmutableMap.Builder<String, Object> params = ImmutableMap.builder();
@@ -393,6 +403,11 @@ public class CreditorService {
             return this;
         }
 
+        public CreditorGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -617,6 +632,11 @@ public class CreditorService {
             return this;
         }
 
+        public CreditorUpdateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
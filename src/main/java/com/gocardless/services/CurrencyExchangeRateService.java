@@ -149,6 +149,11 @@ public class CurrencyExchangeRateService {
             return this;
         }
 
+        public CurrencyExchangeRateListRequest<S> withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, Object> getQueryParams() {
             ImmutableMap.Builder<String, Object> params = ImmutableMap.builder();
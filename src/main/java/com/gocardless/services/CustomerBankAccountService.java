@@ -271,6 +271,11 @@ public class CustomerBankAccountService {
             return this;
         }
 
+        public CustomerBankAccountCreateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "customer_bank_accounts";
@@ -434,6 +439,11 @@ public class CustomerBankAccountService {
             return this;
         }
 
+        public CustomerBankAccountListRequest<S> withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, Object> getQueryParams() {
             ImmutableMap.Builder<String, Object> params = ImmutableMap.builder();
@@ -541,6 +551,11 @@ public class CustomerBankAccountService {
             return this;
         }
 
+        public CustomerBankAccountGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -606,6 +621,11 @@ public class CustomerBankAccountService {
             return this;
         }
 
+        public CustomerBankAccountUpdateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
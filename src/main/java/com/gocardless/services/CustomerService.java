@@ -275,6 +275,11 @@ public class CustomerService {
             return this;
         }
 
+        public CustomerCreateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "customers";
@@ -396,6 +401,11 @@ public class CustomerService {
             return this;
         }
 
+        public CustomerListRequest<S> withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, Object> getQueryParams() {
             ImmutableMap.Builder<String, Object> params = ImmutableMap.builder();
@@ -516,6 +526,11 @@ public class CustomerService {
             return this;
         }
 
+        public CustomerGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -729,6 +744,11 @@ public class CustomerService {
             return this;
         }
 
+        public CustomerUpdateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -781,6 +801,11 @@ public class CustomerService {
             return this;
         }
 
+        public CustomerRemoveRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
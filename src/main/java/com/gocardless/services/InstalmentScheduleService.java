@@ -285,6 +285,11 @@ public class InstalmentScheduleService {
             return this;
         }
 
+        public InstalmentScheduleCreateWithDatesRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "instalment_schedules";
@@ -591,6 +596,12 @@ public class InstalmentScheduleService {
             return this;
         }
 
+        public InstalmentScheduleCreateWithScheduleRequest withRetryPolicy(
+                RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "instalment_schedules";
@@ -833,6 +844,11 @@ public class InstalmentScheduleService {
             return this;
         }
 
+        public InstalmentScheduleListRequest<S> withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, Object> getQueryParams() {
             ImmutableMap.Builder<String, Object> params = ImmutableMap.builder();
@@ -957,6 +973,11 @@ public class InstalmentScheduleService {
             return this;
         }
 
+        public InstalmentScheduleGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -1022,6 +1043,11 @@ public class InstalmentScheduleService {
             return this;
         }
 
+        public InstalmentScheduleUpdateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
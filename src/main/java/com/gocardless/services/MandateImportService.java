@@ -140,6 +140,11 @@ public class MandateImportService {
             return this;
         }
 
+        public MandateImportCreateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "mandate_imports";
@@ -196,6 +201,11 @@ public class MandateImportService {
             return this;
         }
 
+        public MandateImportGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -402,6 +402,11 @@ public class RedirectFlowService {
             return this;
         }
 
+        public RedirectFlowCreateRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected String getPathTemplate() {
             return "redirect_flows";
@@ -636,6 +641,11 @@ public class RedirectFlowService {
             return this;
         }
 
+        public RedirectFlowGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected Map<String, String> getPathParams() {
             ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
@@ -0,0 +1,96 @@
+package com.gocardless;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gocardless.http.MockHttp;
+import com.gocardless.resources.Mandate;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BatchLoaderTest {
+    @Rule
+    public final MockHttp http = new MockHttp();
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+    private final AtomicInteger listCount = new AtomicInteger();
+
+    @Test
+    public void shouldCombineLookupsForTheSameParent() throws Exception {
+        BatchLoader<String> loader = newLoader(false);
+        ListenableFuture<String> first = loader.load("P1", "a");
+        ListenableFuture<String> second = loader.load("P1", "b");
+        ListenableFuture<String> missing = loader.load("P1", "z");
+        ListenableFuture<List<String>> all = loader.loadAll("P1");
+        ListenableFuture<String> other = loader.load("P2", "a");
+        assertThat(first.get()).isEqualTo("a");
+        assertThat(second.get()).isEqualTo("b");
+        assertThat(missing.get()).isNull();
+        assertThat(all.get()).containsExactly("a", "b");
+        assertThat(other.get()).isEqualTo("a");
+        assertThat(listCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldStartNewBatchAfterWindowCloses() throws Exception {
+        BatchLoader<String> loader = newLoader(false);
+        loader.load("P1", "a").get();
+        loader.load("P1", "a").get();
+        assertThat(listCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFailEveryLookupWhenListingFails() throws Exception {
+        BatchLoader<String> loader = newLoader(true);
+        ListenableFuture<String> first = loader.load("P1", "a");
+        ListenableFuture<String> second = loader.load("P1", "b");
+        try {
+            second.get();
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(listCount.get()).isEqualTo(1);
+        exception.expect(ExecutionException.class);
+        first.get();
+    }
+
+    @Test
+    public void shouldListMandatesByCustomer() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_mandates_for_a_customer.json");
+        GoCardlessClient client =
+                GoCardlessClient.newBuilder("token").withBaseUrl(http.getBaseUrl()).build();
+        BatchLoader<Mandate> loader = BatchLoader.mandatesByCustomer(client).build();
+        ListenableFuture<Mandate> first = loader.load("CU123", "MD00001PEYCSQF");
+        ListenableFuture<Mandate> second = loader.load("CU123", "MD00001P57AN84");
+        assertThat(first.get().getReference()).isEqualTo("TA8HEN2");
+        assertThat(second.get().getId()).isEqualTo("MD00001P57AN84");
+        http.assertRequestMade("GET", "/mandates?limit=500&customer=CU123");
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    private BatchLoader<String> newLoader(final boolean fail) {
+        return BatchLoader.newBuilder(new Function<String, Iterable<String>>() {
+            @Override
+            public Iterable<String> apply(String parentId) {
+                listCount.incrementAndGet();
+                if (fail) {
+                    throw new IllegalStateException("oops");
+                }
+                return ImmutableList.of("a", "b");
+            }
+        }, Functions.<String>identity()).withWindow(50, TimeUnit.MILLISECONDS).build();
+    }
+}
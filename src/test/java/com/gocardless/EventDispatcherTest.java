@@ -0,0 +1,192 @@
+package com.gocardless;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.gocardless.http.WebhookParser;
+import com.gocardless.resources.Event;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class EventDispatcherTest {
+    private static final String WEBHOOK =
+            "{\"events\":[{\"id\":\"EV1\",\"resource_type\":\"payments\",\"action\":\"submitted\",\"links\":{\"payment\":\"PM1\"}},{\"id\":\"EV2\",\"resource_type\":\"payments\",\"action\":\"confirmed\",\"links\":{\"payment\":\"PM1\"}},{\"id\":\"EV3\",\"resource_type\":\"mandates\",\"action\":\"cancelled\",\"links\":{\"mandate\":\"MD1\"}}]}";
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldRouteEventsByResourceTypeAndAction() throws Exception {
+        final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        EventDispatcher.Handler confirmed = recordingHandler(handled, "confirmed");
+        EventDispatcher.Handler any = recordingHandler(handled, "any");
+        EventDispatcher dispatcher = EventDispatcher.newBuilder()
+                .on(Event.ResourceType.PAYMENTS, "confirmed", confirmed)
+                .on(Event.ResourceType.PAYMENTS, any)
+                .build();
+        dispatcher.dispatch(WebhookParser.parse(WEBHOOK)).get();
+        assertThat(handled).containsExactly("any:EV1", "confirmed:EV2", "any:EV2");
+        Map<EventDispatcher.Handler, EventDispatcher.HandlerStats> stats =
+                dispatcher.getHandlerStats();
+        assertThat(stats.get(confirmed).getCount()).isEqualTo(1);
+        assertThat(stats.get(any).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldMeasureEachHandlerSeparately() throws Exception {
+        final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        EventDispatcher.Handler first = recordingHandler(handled, "first");
+        EventDispatcher.Handler second = recordingHandler(handled, "second");
+        EventDispatcher dispatcher = EventDispatcher.newBuilder()
+                .on(Event.ResourceType.PAYMENTS, "submitted", first)
+                .on(Event.ResourceType.PAYMENTS, "submitted", second)
+                .on(Event.ResourceType.MANDATES, second)
+                .build();
+        dispatcher.dispatch(WebhookParser.parse(WEBHOOK)).get();
+        assertThat(handled).containsExactly("first:EV1", "second:EV1", "second:EV3");
+        assertThat(dispatcher.getHandlerStats()).hasSize(2);
+        assertThat(dispatcher.getHandlerStats().get(first).getCount()).isEqualTo(1);
+        assertThat(dispatcher.getHandlerStats().get(second).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldHandleEventsForTheSameResourceInOrder() throws Exception {
+        final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        EventDispatcher dispatcher = EventDispatcher.newBuilder()
+                .on(Event.ResourceType.PAYMENTS, new EventDispatcher.Handler() {
+                    @Override
+                    public void handle(Event event) throws Exception {
+                        if (event.getId().equals("EV1")) {
+                            Thread.sleep(50);
+                        }
+                        handled.add(event.getId());
+                    }
+                })
+                .withExecutor(executor)
+                .build();
+        dispatcher.dispatch(WebhookParser.parse(WEBHOOK)).get(1, TimeUnit.SECONDS);
+        assertThat(handled).containsExactly("EV1", "EV2");
+    }
+
+    @Test
+    public void shouldFailWhenHandlerFails() throws Exception {
+        EventDispatcher.Handler failing = new EventDispatcher.Handler() {
+            @Override
+            public void handle(Event event) {
+                throw new IllegalStateException("oops");
+            }
+        };
+        EventDispatcher dispatcher = EventDispatcher.newBuilder()
+                .on(Event.ResourceType.MANDATES, "cancelled", failing)
+                .withExecutor(executor)
+                .build();
+        ListenableFuture<Void> future = dispatcher.dispatch(WebhookParser.parse(WEBHOOK));
+        exception.expect(ExecutionException.class);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+        } finally {
+            EventDispatcher.HandlerStats stats = dispatcher.getHandlerStats().get(failing);
+            assertThat(stats.getCount()).isEqualTo(1);
+            assertThat(stats.getFailureCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void shouldWaitForEveryEventBeforeFailing() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        EventDispatcher.Handler failing = new EventDispatcher.Handler() {
+            @Override
+            public void handle(Event event) {
+                throw new IllegalStateException("oops");
+            }
+        };
+        EventDispatcher dispatcher = EventDispatcher.newBuilder()
+                .on(Event.ResourceType.PAYMENTS, "submitted", failing)
+                .on(Event.ResourceType.MANDATES, "cancelled", new EventDispatcher.Handler() {
+                    @Override
+                    public void handle(Event event) throws Exception {
+                        release.await();
+                    }
+                })
+                .withExecutor(executor)
+                .build();
+        ListenableFuture<Void> future = dispatcher.dispatch(WebhookParser.parse(WEBHOOK));
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("Expected the dispatch to wait for the blocked handler");
+        } catch (TimeoutException e) {
+            assertThat(dispatcher.getHandlerStats().get(failing).getFailureCount())
+                    .isEqualTo(1);
+        }
+        release.countDown();
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected the dispatch to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void shouldFailQueuedEventsWhenExecutorRejects() throws Exception {
+        final List<Event> events = WebhookParser.parse(WEBHOOK);
+        final EventDispatcher[] dispatcher = new EventDispatcher[1];
+        final List<ListenableFuture<Void>> queued = new ArrayList<>();
+        dispatcher[0] = EventDispatcher.newBuilder()
+                .on(Event.ResourceType.PAYMENTS, recordingHandler(new ArrayList<String>(), "any"))
+                .withExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        // Another event for the same payment queues up before the rejection.
+                        queued.add(dispatcher[0].dispatch(events.get(1)));
+                        throw new RejectedExecutionException("full");
+                    }
+                })
+                .build();
+        ListenableFuture<Void> first = dispatcher[0].dispatch(events.get(0));
+        assertThat(queued).hasSize(1);
+        for (ListenableFuture<Void> future : ImmutableList.of(first, queued.get(0))) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("Expected the event to be rejected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+            }
+        }
+    }
+
+    private static EventDispatcher.Handler recordingHandler(final List<String> handled,
+            final String name) {
+        return new EventDispatcher.Handler() {
+            @Override
+            public void handle(Event event) {
+                handled.add(name + ":" + event.getId());
+            }
+        };
+    }
+}
@@ -0,0 +1,169 @@
+package com.gocardless;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.gocardless.http.MockHttp;
+import com.gocardless.resources.Event;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventStreamTest {
+    @Rule
+    public final MockHttp http = new MockHttp();
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+    private final List<String> handled = new ArrayList<>();
+    private GoCardlessClient client;
+    private EventStream.CheckpointStore checkpointStore;
+
+    @Before
+    public void setUp() throws Exception {
+        client = GoCardlessClient.newBuilder("token").withBaseUrl(http.getBaseUrl()).build();
+        checkpointStore =
+                EventStream.fileCheckpointStore(folder.getRoot().toPath().resolve("checkpoint"));
+    }
+
+    @Test
+    public void shouldDeliverEventsOldestFirstAndSaveCheckpoint() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_events_page.json");
+        int count = newStream(false).poll();
+        assertThat(count).isEqualTo(2);
+        assertThat(handled).containsExactly("EV1", "EV2");
+        assertThat(checkpointStore.load()).isEqualTo("EV2");
+        http.assertRequestMade("GET", "/events?limit=50");
+    }
+
+    @Test
+    public void shouldResumeFromCheckpoint() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_events_empty.json");
+        checkpointStore.save("EV2");
+        int count = newStream(false).poll();
+        assertThat(count).isEqualTo(0);
+        assertThat(checkpointStore.load()).isEqualTo("EV2");
+        http.assertRequestMade("GET", "/events?before=EV2&limit=50");
+    }
+
+    @Test
+    public void shouldDeliverEventsAfterCheckpointOldestFirst() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_events_after_checkpoint.json");
+        checkpointStore.save("EV2");
+        int count = newStream(false).poll();
+        assertThat(count).isEqualTo(2);
+        assertThat(handled).containsExactly("EV3", "EV4");
+        assertThat(checkpointStore.load()).isEqualTo("EV4");
+        http.assertRequestMade("GET", "/events?before=EV2&limit=50");
+    }
+
+    @Test
+    public void shouldNotSaveCheckpointWhenHandlerFails() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_events_page.json");
+        checkpointStore.save("EV0");
+        exception.expect(IllegalStateException.class);
+        try {
+            newStream(true).poll();
+        } finally {
+            assertThat(checkpointStore.load()).isEqualTo("EV0");
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void shouldWaitAfterFailureWithZeroPollInterval() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_events_page.json");
+        http.enqueueResponse(200, "fixtures/client/list_events_page.json");
+        EventStream stream = newBuilder(true).withPollInterval(0, TimeUnit.SECONDS).build();
+        Thread thread = new Thread(stream);
+        thread.start();
+        Thread.sleep(300);
+        stream.stop();
+        thread.join();
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLoadNothingWithoutCheckpointFile() throws Exception {
+        assertThat(checkpointStore.load()).isNull();
+    }
+
+    @Test
+    public void shouldAdaptToEventRateWhenTailing() {
+        EventStream stream = newBuilder(false).withPollInterval(1, TimeUnit.SECONDS)
+                .withTailing(8, TimeUnit.SECONDS).build();
+        assertThat(stream.adapt(50, 50)).isEqualTo(0);
+        assertThat(stream.getCurrentBatchSize()).isEqualTo(100);
+        assertThat(stream.adapt(100, 100)).isEqualTo(0);
+        assertThat(stream.adapt(200, 200)).isEqualTo(0);
+        assertThat(stream.adapt(400, 400)).isEqualTo(0);
+        assertThat(stream.getCurrentBatchSize()).isEqualTo(500);
+        assertThat(stream.adapt(0, 500)).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+        assertThat(stream.adapt(0, 250)).isEqualTo(TimeUnit.SECONDS.toNanos(4));
+        assertThat(stream.adapt(0, 125)).isEqualTo(TimeUnit.SECONDS.toNanos(8));
+        assertThat(stream.adapt(0, 62)).isEqualTo(TimeUnit.SECONDS.toNanos(8));
+        assertThat(stream.getCurrentBatchSize()).isEqualTo(50);
+        assertThat(stream.adapt(10, 50)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(stream.getCurrentPollIntervalMillis()).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldRejectMaxPollIntervalNoLongerThanPollInterval() {
+        EventStream.Builder builder = newBuilder(false).withPollInterval(10, TimeUnit.SECONDS)
+                .withTailing(10, TimeUnit.SECONDS);
+        exception.expect(IllegalArgumentException.class);
+        builder.build();
+    }
+
+    @Test
+    public void shouldRejectZeroPollIntervalWhenTailing() {
+        EventStream.Builder builder = newBuilder(false).withPollInterval(0, TimeUnit.SECONDS)
+                .withTailing(10, TimeUnit.SECONDS);
+        exception.expect(IllegalArgumentException.class);
+        builder.build();
+    }
+
+    @Test
+    public void shouldUseFixedIntervalWithoutTailing() {
+        EventStream stream = newBuilder(false).withPollInterval(1, TimeUnit.SECONDS).build();
+        assertThat(stream.adapt(50, 50)).isEqualTo(0);
+        assertThat(stream.adapt(0, 50)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(stream.adapt(0, 50)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(stream.getCurrentBatchSize()).isEqualTo(50);
+    }
+
+    @Test
+    public void shouldReportLag() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/list_events_page.json");
+        http.enqueueResponse(200, "fixtures/client/list_events_empty.json");
+        EventStream stream = newStream(false);
+        stream.poll();
+        assertThat(stream.getLagMillis()).isGreaterThan(0);
+        stream.poll();
+        assertThat(stream.getLagMillis()).isEqualTo(0);
+    }
+
+    private EventStream newStream(boolean fail) {
+        return newBuilder(fail).build();
+    }
+
+    private EventStream.Builder newBuilder(final boolean fail) {
+        return EventStream.newBuilder(client, checkpointStore, new EventStream.Handler() {
+            @Override
+            public void handle(List<Event> events) {
+                if (fail) {
+                    throw new IllegalStateException("oops");
+                }
+                for (Event event : events) {
+                    handled.add(event.getId());
+                }
+            }
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package com.gocardless;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.gocardless.http.ApiResponse;
 import com.gocardless.http.ListResponse;
@@ -13,6 +14,8 @@ import com.gocardless.services.SubscriptionService.SubscriptionCreateRequest;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
+import com.squareup.okhttp.OkHttpClient;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -308,4 +311,34 @@ public class GoCardlessClientTest {
         http.assertRequestMade("GET", "/creditor_bank_accounts?enabled=true",
                 ImmutableMap.of("Authorization", "Bearer " + ACCESS_TOKEN));
     }
+
+    @Test
+    public void shouldReuseConnectionsAcrossRequests() throws Exception {
+        GoCardlessClient tunedClient = GoCardlessClient.newBuilder(ACCESS_TOKEN)
+                .withBaseUrl(http.getBaseUrl()).withConnectionPool(2, 1, TimeUnit.MINUTES)
+                .withConnectTimeout(5, TimeUnit.SECONDS).withReadTimeout(5, TimeUnit.SECONDS)
+                .withWriteTimeout(5, TimeUnit.SECONDS).withHttp2Enabled(false).build();
+        for (int i = 0; i < 3; i++) {
+            http.enqueueResponse(200, "fixtures/client/get_a_customer.json");
+            tunedClient.customers().get("CU00003068FG73").execute();
+        }
+        for (int i = 0; i < 3; i++) {
+            http.assertRequestUsedConnection(i);
+        }
+    }
+
+    @Test
+    public void shouldCopyASuppliedOkHttpClient() throws Exception {
+        OkHttpClient okHttpClient = new OkHttpClient();
+        okHttpClient.setReadTimeout(1, TimeUnit.SECONDS);
+        GoCardlessClient customClient = GoCardlessClient.newBuilder(ACCESS_TOKEN)
+                .withBaseUrl(http.getBaseUrl()).withOkHttpClient(okHttpClient)
+                .withReadTimeout(5, TimeUnit.SECONDS).withMaxRequests(8).build();
+        http.enqueueResponse(200, "fixtures/client/get_a_customer.json");
+        Customer customer = customClient.customers().get("CU00003068FG73").execute();
+        assertThat(customer.getId()).isEqualTo("CU00003068FG73");
+        assertThat(okHttpClient.getReadTimeout()).isEqualTo(1000);
+        assertThat(okHttpClient.interceptors()).isEmpty();
+        assertThat(okHttpClient.getDispatcher().getMaxRequests()).isEqualTo(64);
+    }
 }
@@ -0,0 +1,124 @@
+package com.gocardless;
+
+import java.util.List;
+
+import com.gocardless.http.MockHttp;
+import com.gocardless.http.WebhookParser;
+import com.gocardless.resources.Event;
+import com.gocardless.resources.Mandate;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceStoreTest {
+    private static final String MANDATE_EVENT =
+            "{\"events\":[{\"id\":\"EV123\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"mandates\",\"action\":\"cancelled\",\"links\":{\"mandate\":\"MD00001P1KTRNY\"},\"details\":{\"origin\":\"api\",\"cause\":\"mandate_cancelled\",\"description\":\"Mandate cancelled.\"},\"metadata\":{}}]}";
+    private static final String PAYMENT_EVENT =
+            "{\"events\":[{\"id\":\"EV456\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"payments\",\"action\":\"confirmed\",\"links\":{\"payment\":\"PM123\"},\"details\":{\"origin\":\"gocardless\",\"cause\":\"payment_confirmed\",\"description\":\"Payment confirmed.\"},\"metadata\":{}}]}";
+    @Rule
+    public final MockHttp http = new MockHttp();
+    private ResourceStore store;
+
+    @Before
+    public void setUp() {
+        GoCardlessClient client =
+                GoCardlessClient.newBuilder("token").withBaseUrl(http.getBaseUrl()).build();
+        store = ResourceStore.newBuilder(client).build();
+    }
+
+    @Test
+    public void shouldServeRepeatedLookupsFromMemory() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        Mandate first = store.getMandate("MD00001P1KTRNY");
+        Mandate second = store.getMandate("MD00001P1KTRNY");
+        assertThat(first.getStatus()).isEqualTo(Mandate.Status.CANCELLED);
+        assertThat(second).isSameAs(first);
+        assertThat(http.getRequestCount()).isEqualTo(1);
+        http.assertRequestMade("GET", "/mandates/MD00001P1KTRNY");
+    }
+
+    @Test
+    public void shouldFetchAgainAfterEvent() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        store.getMandate("MD00001P1KTRNY");
+        store.apply(WebhookParser.parse(MANDATE_EVENT));
+        store.getMandate("MD00001P1KTRNY");
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFetchAgainWhenEventArrivesDuringFetch() throws Exception {
+        http.enqueueSlowResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        Thread lookup = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                store.getMandate("MD00001P1KTRNY");
+            }
+        });
+        lookup.start();
+        http.takeRequest();
+        // The first response is still arriving, so it may predate the event.
+        store.apply(WebhookParser.parse(MANDATE_EVENT));
+        lookup.join();
+        assertThat(http.getRequestCount()).isEqualTo(2);
+        store.getMandate("MD00001P1KTRNY");
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test(timeout = 20000)
+    public void shouldStopFetchingAgainWhenResourceKeepsChanging() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            http.enqueueSlowResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        }
+        Thread lookup = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                store.getMandate("MD00001P1KTRNY");
+            }
+        });
+        lookup.start();
+        // Every response may predate an event, but only three further fetches are made.
+        for (int i = 0; i < 4; i++) {
+            http.takeRequest();
+            store.apply(WebhookParser.parse(MANDATE_EVENT));
+        }
+        lookup.join();
+        assertThat(http.getRequestCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldRefreshAgainWhenEventArrivesDuringRefresh() throws Exception {
+        GoCardlessClient client =
+                GoCardlessClient.newBuilder("token").withBaseUrl(http.getBaseUrl()).build();
+        store = ResourceStore.newBuilder(client).withBackgroundRefresh(true).build();
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        http.enqueueSlowResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        store.getMandate("MD00001P1KTRNY");
+        store.apply(WebhookParser.parse(MANDATE_EVENT));
+        http.takeRequest();
+        http.takeRequest();
+        store.apply(WebhookParser.parse(MANDATE_EVENT));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (http.getRequestCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(http.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldIgnoreEventsForOtherResources() throws Exception {
+        http.enqueueResponse(200, "fixtures/client/cancel_a_mandate_response.json");
+        store.getMandate("MD00001P1KTRNY");
+        List<Event> events = WebhookParser.parse(PAYMENT_EVENT);
+        store.apply(events);
+        store.getMandate("MD00001P1KTRNY");
+        assertThat(http.getRequestCount()).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+    }
+}
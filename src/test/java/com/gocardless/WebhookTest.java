@@ -1,15 +1,20 @@
 package com.gocardless;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import com.gocardless.errors.InvalidSignatureException;
+import com.gocardless.http.WebhookParser;
 import com.gocardless.resources.Event;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import static com.google.common.base.Charsets.UTF_8;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class WebhookTest {
@@ -28,6 +33,86 @@ public class WebhookTest {
         assertThat(events.get(1).getId()).isEqualTo("EV00BD05TB8K63");
     }
 
+    @Test
+    public void shouldParseWebhookWithClientParser() throws IOException {
+        String requestBody =
+                "{\"events\":[{\"id\":\"EV00BD05S5VM2T\",\"created_at\":\"2018-07-05T09:13:51.404Z\",\"resource_type\":\"subscriptions\",\"action\":\"created\",\"links\":{\"subscription\":\"SB0003JJQ2MR06\"},\"details\":{\"origin\":\"api\",\"cause\":\"subscription_created\",\"description\":\"Subscription created via the API.\"},\"metadata\":{}},{\"id\":\"EV00BD05TB8K63\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"mandates\",\"action\":\"created\",\"links\":{\"mandate\":\"MD000AMA19XGEC\"},\"details\":{\"origin\":\"api\",\"cause\":\"mandate_created\",\"description\":\"Mandate created via the API.\"},\"metadata\":{}}]}";
+        String webhookEndpointSecret = "ED7D658C-D8EB-4941-948B-3973214F2D49";
+        String signatureHeader = "2693754819d3e32d7e8fcb13c729631f316c6de8dc1cf634d6527f1c07276e7e";
+        GoCardlessClient client =
+                GoCardlessClient.newBuilder("token").withPreloadedAdapters(true).build();
+        List<Event> events = Webhook.parse(requestBody, signatureHeader, webhookEndpointSecret,
+                client.webhookParser());
+        assertThat(events.size()).isEqualTo(2);
+        assertThat(events.get(1).getLinks().getMandate()).isEqualTo("MD000AMA19XGEC");
+    }
+
+    @Test
+    public void shouldParseWebhookFromBytesWithValidSignature() throws IOException {
+        String requestBody =
+                "{\"events\":[{\"id\":\"EV00BD05S5VM2T\",\"created_at\":\"2018-07-05T09:13:51.404Z\",\"resource_type\":\"subscriptions\",\"action\":\"created\",\"links\":{\"subscription\":\"SB0003JJQ2MR06\"},\"details\":{\"origin\":\"api\",\"cause\":\"subscription_created\",\"description\":\"Subscription created via the API.\"},\"metadata\":{}},{\"id\":\"EV00BD05TB8K63\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"mandates\",\"action\":\"created\",\"links\":{\"mandate\":\"MD000AMA19XGEC\"},\"details\":{\"origin\":\"api\",\"cause\":\"mandate_created\",\"description\":\"Mandate created via the API.\"},\"metadata\":{}}]}";
+        String webhookEndpointSecret = "ED7D658C-D8EB-4941-948B-3973214F2D49";
+        String signatureHeader = "2693754819d3e32d7e8fcb13c729631f316c6de8dc1cf634d6527f1c07276e7e";
+        byte[] bytes = requestBody.getBytes(UTF_8);
+        List<Event> fromArray = Webhook.parse(bytes, signatureHeader, webhookEndpointSecret);
+        List<Event> fromStream = Webhook.parse(new ByteArrayInputStream(bytes), signatureHeader,
+                webhookEndpointSecret);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        List<Event> fromBuffer = Webhook.parse(direct, signatureHeader, webhookEndpointSecret);
+        assertThat(fromArray.get(0).getId()).isEqualTo("EV00BD05S5VM2T");
+        assertThat(fromStream.get(1).getId()).isEqualTo("EV00BD05TB8K63");
+        assertThat(fromBuffer.size()).isEqualTo(2);
+        assertThat(direct.remaining()).isEqualTo(bytes.length);
+    }
+
+    @Test
+    public void shouldParseWebhookFromBytesWithClientParser() throws IOException {
+        String requestBody =
+                "{\"events\":[{\"id\":\"EV00BD05S5VM2T\",\"created_at\":\"2018-07-05T09:13:51.404Z\",\"resource_type\":\"subscriptions\",\"action\":\"created\",\"links\":{\"subscription\":\"SB0003JJQ2MR06\"},\"details\":{\"origin\":\"api\",\"cause\":\"subscription_created\",\"description\":\"Subscription created via the API.\"},\"metadata\":{}},{\"id\":\"EV00BD05TB8K63\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"mandates\",\"action\":\"created\",\"links\":{\"mandate\":\"MD000AMA19XGEC\"},\"details\":{\"origin\":\"api\",\"cause\":\"mandate_created\",\"description\":\"Mandate created via the API.\"},\"metadata\":{}}]}";
+        String webhookEndpointSecret = "ED7D658C-D8EB-4941-948B-3973214F2D49";
+        String signatureHeader = "2693754819d3e32d7e8fcb13c729631f316c6de8dc1cf634d6527f1c07276e7e";
+        WebhookParser parser =
+                GoCardlessClient.newBuilder("token").withPreloadedAdapters(true).build()
+                        .webhookParser();
+        byte[] bytes = requestBody.getBytes(UTF_8);
+        List<Event> fromArray =
+                Webhook.parse(bytes, signatureHeader, webhookEndpointSecret, parser);
+        List<Event> fromStream = Webhook.parse(new ByteArrayInputStream(bytes), signatureHeader,
+                webhookEndpointSecret, parser);
+        List<Event> fromBuffer =
+                Webhook.parse(ByteBuffer.wrap(bytes), signatureHeader, webhookEndpointSecret,
+                        parser);
+        assertThat(fromArray.get(1).getLinks().getMandate()).isEqualTo("MD000AMA19XGEC");
+        assertThat(fromStream.size()).isEqualTo(2);
+        assertThat(fromBuffer.get(0).getId()).isEqualTo("EV00BD05S5VM2T");
+        assertThat(Webhook.iterate(bytes, signatureHeader, webhookEndpointSecret, parser).next()
+                .getId()).isEqualTo("EV00BD05S5VM2T");
+    }
+
+    @Test
+    public void shouldValidateSignatureOverPartOfArray() throws IOException {
+        String requestBody =
+                "{\"events\":[{\"id\":\"EV00BD05S5VM2T\",\"created_at\":\"2018-07-05T09:13:51.404Z\",\"resource_type\":\"subscriptions\",\"action\":\"created\",\"links\":{\"subscription\":\"SB0003JJQ2MR06\"},\"details\":{\"origin\":\"api\",\"cause\":\"subscription_created\",\"description\":\"Subscription created via the API.\"},\"metadata\":{}},{\"id\":\"EV00BD05TB8K63\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"mandates\",\"action\":\"created\",\"links\":{\"mandate\":\"MD000AMA19XGEC\"},\"details\":{\"origin\":\"api\",\"cause\":\"mandate_created\",\"description\":\"Mandate created via the API.\"},\"metadata\":{}}]}";
+        String webhookEndpointSecret = "ED7D658C-D8EB-4941-948B-3973214F2D49";
+        String signatureHeader = "2693754819d3e32d7e8fcb13c729631f316c6de8dc1cf634d6527f1c07276e7e";
+        byte[] bytes = ("xx" + requestBody + "yy").getBytes(UTF_8);
+        ByteBuffer slice = ByteBuffer.wrap(bytes, 2, bytes.length - 4).slice();
+        assertThat(Webhook.isValidSignature(slice, signatureHeader, webhookEndpointSecret))
+                .isEqualTo(true);
+        assertThat(Webhook.parse(slice, signatureHeader, webhookEndpointSecret).size())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRejectSignatureWhichIsNotHex() throws IOException {
+        String requestBody =
+                "{\"events\":[{\"id\":\"EV00BD05S5VM2T\",\"created_at\":\"2018-07-05T09:13:51.404Z\",\"resource_type\":\"subscriptions\",\"action\":\"created\",\"links\":{\"subscription\":\"SB0003JJQ2MR06\"},\"details\":{\"origin\":\"api\",\"cause\":\"subscription_created\",\"description\":\"Subscription created via the API.\"},\"metadata\":{}},{\"id\":\"EV00BD05TB8K63\",\"created_at\":\"2018-07-05T09:13:56.893Z\",\"resource_type\":\"mandates\",\"action\":\"created\",\"links\":{\"mandate\":\"MD000AMA19XGEC\"},\"details\":{\"origin\":\"api\",\"cause\":\"mandate_created\",\"description\":\"Mandate created via the API.\"},\"metadata\":{}}]}";
+        String webhookEndpointSecret = "ED7D658C-D8EB-4941-948B-3973214F2D49";
+        assertThat(Webhook.isValidSignature(requestBody.getBytes(UTF_8), "not-hex",
+                webhookEndpointSecret)).isEqualTo(false);
+    }
+
     @Test
     public void shouldThrowExceptionForWebhookWithInvalidSignature() throws IOException {
         String requestBody =
@@ -0,0 +1,147 @@
+package com.gocardless.http;
+
+import java.util.List;
+
+import com.gocardless.errors.ValidationFailedException;
+import com.gocardless.http.HttpTestUtil.DummyItem;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchExecutorTest {
+    @Rule
+    public final MockHttp http = new MockHttp();
+
+    @Test
+    public void shouldReturnResultsInSubmissionOrder() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(422, "fixtures/validation_failed.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        List<DummyPostRequest> requests =
+                ImmutableList.of(new DummyPostRequest(), new DummyPostRequest(),
+                        new DummyPostRequest());
+        List<BatchResult<DummyItem>> results =
+                new BatchExecutor().withConcurrency(1).execute(requests);
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).isSuccessful()).isTrue();
+        assertThat(results.get(0).getResource().stringField).isEqualTo("foo");
+        assertThat(results.get(0).getRequest()).isSameAs(requests.get(0));
+        assertThat(results.get(1).isSuccessful()).isFalse();
+        assertThat(results.get(1).getResource()).isNull();
+        assertThat(results.get(1).getException()).isInstanceOf(ValidationFailedException.class);
+        assertThat(results.get(1).getRequest()).isSameAs(requests.get(1));
+        assertThat(results.get(2).isSuccessful()).isTrue();
+    }
+
+    @Test
+    public void shouldSendFixedIdempotencyKeys() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyPostRequest request = new DummyPostRequest();
+        new BatchExecutor().execute(ImmutableList.of(request));
+        String idempotencyKey = request.getIdempotencyKey();
+        assertThat(idempotencyKey).isNotNull();
+        http.assertRequestMade("POST", "/dummy", "fixtures/single.json",
+                ImmutableMap.of("Idempotency-Key", idempotencyKey));
+    }
+
+    @Test
+    public void shouldKeepSpecifiedIdempotencyKeys() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyPostRequest request = new DummyPostRequest().withIdempotencyKey("key-1");
+        new BatchExecutor().execute(ImmutableList.of(request));
+        http.assertRequestMade("POST", "/dummy", "fixtures/single.json",
+                ImmutableMap.of("Idempotency-Key", "key-1"));
+    }
+
+    @Test
+    public void shouldExecuteConcurrently() throws Exception {
+        ImmutableList.Builder<DummyPostRequest> requests = ImmutableList.builder();
+        for (int i = 0; i < 20; i++) {
+            http.enqueueResponse(200, "fixtures/single.json");
+            requests.add(new DummyPostRequest());
+        }
+        List<BatchResult<DummyItem>> results =
+                new BatchExecutor().withConcurrency(4).execute(requests.build());
+        assertThat(results).hasSize(20);
+        for (BatchResult<DummyItem> result : results) {
+            assertThat(result.isSuccessful()).isTrue();
+            assertThat(result.getResource().intField).isEqualTo(123);
+        }
+    }
+
+    @Test
+    public void shouldCopeWithManyRequestsWhichCompleteImmediately() {
+        final DummyItem item = new DummyItem();
+        HttpClient client = http.client();
+        ImmutableList.Builder<DummyPostRequest> requests = ImmutableList.builder();
+        for (int i = 0; i < 100000; i++) {
+            requests.add(new DummyPostRequest(client) {
+                @Override
+                public ListenableFuture<DummyItem> executeAsync() {
+                    return Futures.immediateFuture(item);
+                }
+            });
+        }
+        List<BatchResult<DummyItem>> results =
+                new BatchExecutor().withConcurrency(1).execute(requests.build());
+        assertThat(results).hasSize(100000);
+        assertThat(results.get(99999).getResource()).isSameAs(item);
+    }
+
+    @Test
+    public void shouldCopeWithEmptyBatch() {
+        List<BatchResult<DummyItem>> results =
+                new BatchExecutor().execute(ImmutableList.<DummyPostRequest>of());
+        assertThat(results).isEmpty();
+    }
+
+    private class DummyPostRequest extends IdempotentPostRequest<DummyItem> {
+        private int intField = 123;
+        private String stringField = "foo";
+
+        public DummyPostRequest() {
+            this(http.client());
+        }
+
+        public DummyPostRequest(HttpClient httpClient) {
+            super(httpClient);
+        }
+
+        public DummyPostRequest withIdempotencyKey(String idempotencyKey) {
+            setIdempotencyKey(idempotencyKey);
+            return this;
+        }
+
+        @Override
+        protected String getPathTemplate() {
+            return "/dummy";
+        }
+
+        @Override
+        protected String getEnvelope() {
+            return "items";
+        }
+
+        @Override
+        protected Class<DummyItem> getResponseClass() {
+            return DummyItem.class;
+        }
+
+        @Override
+        protected boolean hasBody() {
+            return true;
+        }
+
+        @Override
+        protected GetRequest<DummyItem> handleConflict(HttpClient httpClient, String id) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package com.gocardless.http;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+import com.gocardless.errors.GoCardlessInternalException;
 import com.gocardless.errors.InvalidApiUsageException;
 import com.gocardless.http.ApiResponse;
 import com.gocardless.http.HttpTestUtil.DummyItem;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import static org.hamcrest.CoreMatchers.isA;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 public class GetRequestTest {
     @Rule
@@ -75,16 +88,184 @@ public class GetRequestTest {
                 ImmutableMap.of("Authorization", "Bearer token", "Accept-Language", "fr-FR"));
     }
 
+    @Test
+    public void shouldPerformGetRequestAsync() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyItem result = new DummyGetRequest().executeAsync().get();
+        assertThat(result.stringField).isEqualTo("foo");
+        assertThat(result.intField).isEqualTo(123);
+        http.assertRequestMade("GET", "/dummy/123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+    }
+
+    @Test
+    public void shouldPerformWrappedGetRequestAsync() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json", ImmutableMap.of("foo", "bar"));
+        ApiResponse<DummyItem> result = new DummyGetRequest().executeWrappedAsync().get();
+        assertThat(result.getStatusCode()).isEqualTo(200);
+        assertThat(result.getHeaders().get("foo")).containsExactly("bar");
+        assertThat(result.getResource().stringField).isEqualTo("foo");
+    }
+
+    @Test
+    public void shouldFailFutureOnApiError() throws Exception {
+        http.enqueueResponse(400, "fixtures/invalid_api_usage.json");
+        exception.expect(ExecutionException.class);
+        exception.expectCause(isA(InvalidApiUsageException.class));
+        new DummyGetRequest().executeAsync().get();
+    }
+
+    @Test
+    public void shouldRetryAsyncOnNetworkFailureAndInternalError() throws Exception {
+        http.enqueueNetworkFailure();
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyItem result =
+                new DummyGetRequest().withHeader("Accept-Language", "fr-FR").executeAsync().get();
+        assertThat(result.stringField).isEqualTo("foo");
+        http.assertRequestMade("GET", "/dummy/123",
+                ImmutableMap.of("Authorization", "Bearer token", "Accept-Language", "fr-FR"));
+        http.assertRequestMade("GET", "/dummy/123",
+                ImmutableMap.of("Authorization", "Bearer token", "Accept-Language", "fr-FR"));
+    }
+
+    @Test
+    public void shouldRetryRateLimitedRequestAfterRetryAfter() throws Exception {
+        http.enqueueResponse(429, "fixtures/invalid_api_usage.json",
+                ImmutableMap.of("Retry-After", "0"));
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyItem result = new DummyGetRequest().execute();
+        assertThat(result.stringField).isEqualTo("foo");
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotRetryWhenRetryAfterExceedsMaxElapsedTime() throws Exception {
+        http.enqueueResponse(429, "fixtures/invalid_api_usage.json",
+                ImmutableMap.of("Retry-After", "60"));
+        exception.expect(InvalidApiUsageException.class);
+        new DummyGetRequest().execute();
+    }
+
+    @Test
+    public void shouldBackOffFromServerErrorDespiteDistantRateLimitReset() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String reset = format.format(new Date(System.currentTimeMillis() + 3600000));
+        http.enqueueResponse(500, "fixtures/internal_error.json",
+                ImmutableMap.of("RateLimit-Remaining", "999", "RateLimit-Reset", reset));
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyItem result = new DummyGetRequest().execute();
+        assertThat(result.stringField).isEqualTo("foo");
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotRetryWithPerRequestPolicyDisablingRetries() throws Exception {
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyGetRequest request = new DummyGetRequest().withRetryPolicy(RetryPolicy.NONE);
+        try {
+            request.execute();
+            fail("Expected GoCardlessInternalException");
+        } catch (GoCardlessInternalException e) {
+            assertThat(http.getRequestCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void shouldRetryAsyncRateLimitedRequestAfterRetryAfter() throws Exception {
+        http.enqueueResponse(429, "fixtures/invalid_api_usage.json",
+                ImmutableMap.of("Retry-After", "0"));
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyItem result = new DummyGetRequest().executeAsync().get();
+        assertThat(result.stringField).isEqualTo("foo");
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldShareConcurrentIdenticalRequestsWhenCoalescing() throws Exception {
+        http.enqueueSlowResponse(200, "fixtures/single.json");
+        HttpClient client = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withRequestCoalescing(true).build());
+        ListenableFuture<DummyItem> first = new DummyGetRequest(client).executeAsync();
+        ListenableFuture<DummyItem> second = new DummyGetRequest(client).executeAsync();
+        assertThat(first.get().stringField).isEqualTo("foo");
+        assertThat(second.get()).isSameAs(first.get());
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldStopWaitingForSharedRequestWhenInterrupted() throws Exception {
+        http.enqueueSlowResponse(200, "fixtures/single.json");
+        final HttpClient client = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withRequestCoalescing(true).build());
+        final DummyItem[] shared = new DummyItem[1];
+        Thread leader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                shared[0] = new DummyGetRequest(client).execute();
+            }
+        });
+        leader.start();
+        http.takeRequest();
+        final Throwable[] failure = new Throwable[1];
+        final boolean[] interrupted = new boolean[1];
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new DummyGetRequest(client).execute();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                    interrupted[0] = Thread.currentThread().isInterrupted();
+                }
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        waiter.interrupt();
+        waiter.join(1000);
+        assertThat(waiter.isAlive()).isFalse();
+        assertThat(failure[0]).isInstanceOf(GoCardlessNetworkException.class);
+        assertThat(interrupted[0]).isTrue();
+        leader.join(5000);
+        assertThat(shared[0].stringField).isEqualTo("foo");
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotShareRequestsWithDifferentHeadersWhenCoalescing() throws Exception {
+        http.enqueueSlowResponse(200, "fixtures/single.json");
+        http.enqueueSlowResponse(200, "fixtures/single.json");
+        HttpClient client = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withRequestCoalescing(true).build());
+        ListenableFuture<DummyItem> first = new DummyGetRequest(client).executeAsync();
+        ListenableFuture<DummyItem> second = new DummyGetRequest(client)
+                .withHeader("Accept-Language", "fr-FR").executeAsync();
+        assertThat(second.get()).isNotSameAs(first.get());
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
     private class DummyGetRequest extends GetRequest<DummyItem> {
         public DummyGetRequest() {
             super(http.client());
         }
 
+        public DummyGetRequest(HttpClient client) {
+            super(client);
+        }
+
         public DummyGetRequest withHeader(String headerName, String headerValue) {
             this.addHeader(headerName, headerValue);
             return this;
         }
 
+        public DummyGetRequest withRetryPolicy(RetryPolicy retryPolicy) {
+            this.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         @Override
         protected ImmutableMap<String, String> getPathParams() {
             return ImmutableMap.of("id", "123");
@@ -0,0 +1,68 @@
+package com.gocardless.http;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+
+import com.gocardless.resources.Mandate;
+
+import com.google.common.reflect.ClassPath;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GsonFactoryTest {
+    @Test
+    public void shouldParseWithPreloadedAdapters() {
+        Gson gson = GsonFactory.preloadAdapters(GsonFactory.build());
+        Mandate mandate = gson.fromJson(
+                "{\"id\":\"MD123\",\"status\":\"active\",\"links\":{\"creditor\":\"CR123\"}}",
+                Mandate.class);
+        assertThat(mandate.getId()).isEqualTo("MD123");
+        assertThat(mandate.getStatus()).isEqualTo(Mandate.Status.ACTIVE);
+        assertThat(mandate.getLinks().getCreditor()).isEqualTo("CR123");
+    }
+
+    @Test
+    public void shouldBuildAdapterForEveryResponseClassWhenPreloading() {
+        final Set<Class<?>> requested = new HashSet<>();
+        Gson gson = GsonFactory.newBuilder().registerTypeAdapterFactory(new TypeAdapterFactory() {
+            @Override
+            public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+                requested.add(type.getRawType());
+                return null;
+            }
+        }).create();
+        GsonFactory.preloadAdapters(gson);
+        assertThat(requested).containsAll(GsonFactory.RESPONSE_CLASSES);
+    }
+
+    @Test
+    public void shouldListEveryResourceClass() throws Exception {
+        Set<Class<?>> resources = new HashSet<>();
+        for (ClassPath.ClassInfo info : ClassPath.from(Mandate.class.getClassLoader())
+                .getTopLevelClasses(Mandate.class.getPackage().getName())) {
+            if (!info.getSimpleName().equals("package-info")) {
+                resources.add(info.load());
+            }
+        }
+        assertThat(resources).contains(Mandate.class);
+        assertThat(GsonFactory.RESPONSE_CLASSES).containsAll(resources);
+    }
+
+    @Test
+    public void shouldPreloadAdaptersWhenConfiguredOnBuilder() {
+        HttpClient preloaded = TestUtil.getHttpClient(
+                GoCardlessClient.newBuilder("token").withPreloadedAdapters(true).build());
+        HttpClient lazy = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token").build());
+        assertThat(preloaded.hasPreloadedAdapters()).isTrue();
+        assertThat(lazy.hasPreloadedAdapters()).isFalse();
+    }
+}
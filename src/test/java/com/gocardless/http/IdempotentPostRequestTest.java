@@ -1,6 +1,7 @@
 package com.gocardless.http;
 
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import com.gocardless.errors.ValidationFailedException;
 
@@ -10,6 +11,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import static org.hamcrest.CoreMatchers.isA;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class IdempotentPostRequestTest {
@@ -51,6 +54,22 @@ public class IdempotentPostRequestTest {
         http.assertRequestIncludedHeader("Accept-Language");
     }
 
+    @Test
+    public void shouldSendIdempotencyKeyFromCustomHeaderInsteadOfGeneratedOne() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyPostRequest().withHeader("Idempotency-Key", "from-header").execute();
+        http.assertRequestMade("POST", "/dummy", "fixtures/single.json",
+                ImmutableMap.of("Authorization", "Bearer token", "Idempotency-Key", "from-header"));
+    }
+
+    @Test
+    public void shouldMatchIdempotencyKeyCustomHeaderCaseInsensitively() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyPostRequest().withHeader("idempotency-key", "from-header").execute();
+        assertThat(http.takeRequest().getHeaders().values("Idempotency-Key"))
+                .containsExactly("from-header");
+    }
+
     @Test
     public void shouldPerformPostRequestWithSpecifiedIdempotencyKeyAndCustomHeader()
             throws Exception {
@@ -79,6 +98,26 @@ public class IdempotentPostRequestTest {
                 ImmutableMap.of("Authorization", "Bearer token", "Accept-Language", "fr-FR"));
     }
 
+    @Test
+    public void shouldSendSameGeneratedIdempotencyKeyWithEveryAttempt() throws Exception {
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyPostRequest().execute();
+        String key = http.takeRequest().getHeader("Idempotency-Key");
+        assertThat(key).isNotNull();
+        assertThat(http.takeRequest().getHeader("Idempotency-Key")).isEqualTo(key);
+    }
+
+    @Test
+    public void shouldSendSameGeneratedIdempotencyKeyWithEveryAttemptAsync() throws Exception {
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyPostRequest().executeAsync().get();
+        String key = http.takeRequest().getHeader("Idempotency-Key");
+        assertThat(key).isNotNull();
+        assertThat(http.takeRequest().getHeader("Idempotency-Key")).isEqualTo(key);
+    }
+
     @Test
     public void shouldRetryRequestWhenServerDoesNotRespond() throws Exception {
         http.enqueueNetworkFailure();
@@ -126,6 +165,41 @@ public class IdempotentPostRequestTest {
         request.execute();
     }
 
+    @Test
+    public void shouldPerformPostRequestAsync() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        HttpTestUtil.DummyItem result =
+                new DummyPostRequest().withIdempotencyKey("i-am-the-one-and-only").executeAsync()
+                        .get();
+        assertThat(result.stringField).isEqualTo("foo");
+        assertThat(result.intField).isEqualTo(123);
+        http.assertRequestMade("POST", "/dummy", "fixtures/single.json", ImmutableMap.of(
+                "Authorization", "Bearer token", "Idempotency-Key", "i-am-the-one-and-only"));
+    }
+
+    @Test
+    public void shouldHandleConflictByPerformingGetAsync() throws Exception {
+        http.enqueueNetworkFailure();
+        http.enqueueResponse(409, "fixtures/conflict.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        HttpTestUtil.DummyItem result =
+                new DummyPostRequest().withHeader("Accept-Language", "fr-FR").executeAsync().get();
+        assertThat(result.stringField).isEqualTo("foo");
+        assertThat(result.intField).isEqualTo(123);
+        http.assertRequestMade("POST", "/dummy", "fixtures/single.json",
+                ImmutableMap.of("Authorization", "Bearer token", "Accept-Language", "fr-FR"));
+        http.assertRequestMade("GET", "/dummy/ID123",
+                ImmutableMap.of("Authorization", "Bearer token", "Accept-Language", "fr-FR"));
+    }
+
+    @Test
+    public void shouldFailFutureForNonConflictError() throws Exception {
+        http.enqueueResponse(422, "fixtures/validation_failed.json");
+        exception.expect(ExecutionException.class);
+        exception.expectCause(isA(ValidationFailedException.class));
+        new DummyPostRequest().executeAsync().get();
+    }
+
     private class DummyPostRequest extends IdempotentPostRequest<HttpTestUtil.DummyItem> {
         private int intField = 123;
         private String stringField = "foo";
@@ -0,0 +1,84 @@
+package com.gocardless.http;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+import com.gocardless.http.HttpTestUtil.DummyItem;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryClientMetricsTest {
+    @Rule
+    public final MockHttp http = new MockHttp();
+    private final InMemoryClientMetrics metrics = new InMemoryClientMetrics();
+
+    @Test
+    public void shouldRecordRequestsAndRetriesPerEndpoint() throws Exception {
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        HttpClient client = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withMetrics(metrics).build());
+        new DummyGetRequest(client).execute();
+        InMemoryClientMetrics.Endpoint endpoint = metrics.getEndpoints().get("GET dummy/:id");
+        assertThat(endpoint.getRequestCount()).isEqualTo(2);
+        assertThat(endpoint.getErrorCount()).isEqualTo(1);
+        assertThat(endpoint.getRetryCount()).isEqualTo(1);
+        assertThat(endpoint.getResponseBytes()).isGreaterThan(0);
+        assertThat(endpoint.getLatencyPercentile(0.5)).isGreaterThan(0);
+        assertThat(endpoint.getParseTimePercentile(1)).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinBucketPrecision() {
+        InMemoryClientMetrics.Histogram histogram = new InMemoryClientMetrics.Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertThat(histogram.percentile(0.5)).isBetween(500000L, 562500L);
+        assertThat(histogram.percentile(0.99)).isBetween(990000L, 1113750L);
+        assertThat(histogram.percentile(1)).isBetween(1000000L, 1125000L);
+    }
+
+    @Test
+    public void shouldPlaceEachValueInBucketBoundedAbove() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = InMemoryClientMetrics.Histogram.bucketFor(value);
+            assertThat(InMemoryClientMetrics.Histogram.upperBound(bucket))
+                    .isGreaterThanOrEqualTo(value);
+            if (bucket > 0) {
+                assertThat(InMemoryClientMetrics.Histogram.upperBound(bucket - 1))
+                        .isLessThan(value);
+            }
+        }
+    }
+
+    private static class DummyGetRequest extends GetRequest<DummyItem> {
+        DummyGetRequest(HttpClient client) {
+            super(client);
+        }
+
+        @Override
+        protected ImmutableMap<String, String> getPathParams() {
+            return ImmutableMap.of("id", "123");
+        }
+
+        @Override
+        protected String getPathTemplate() {
+            return "dummy/:id";
+        }
+
+        @Override
+        protected String getEnvelope() {
+            return "items";
+        }
+
+        @Override
+        protected Class<DummyItem> getResponseClass() {
+            return DummyItem.class;
+        }
+    }
+}
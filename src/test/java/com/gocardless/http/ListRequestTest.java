@@ -2,6 +2,9 @@ package com.gocardless.http;
 
 import java.util.List;
 
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+
 import com.gocardless.http.HttpTestUtil.DummyItem;
 
 import com.google.common.collect.ImmutableMap;
@@ -111,8 +114,106 @@ public class ListRequestTest {
         request.executeWrapped();
     }
 
+    @Test
+    public void shouldPerformListRequestAsync() throws Exception {
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/page.json");
+        ListResponse<DummyItem> result =
+                DummyListRequest.pageRequest(http.client()).executeAsync().get();
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getItems().get(0).stringField).isEqualTo("foo");
+        assertThat(result.getItems().get(1).stringField).isEqualTo("bar");
+        http.assertRequestMade("GET", "/dummy?id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        http.assertRequestMade("GET", "/dummy?id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+    }
+
+    @Test
+    public void shouldNotAllowExecuteAsyncWhenIterating() {
+        DummyListRequest<Iterable<DummyItem>> request =
+                DummyListRequest.iterableRequest(http.client());
+        exception.expect(IllegalStateException.class);
+        request.executeAsync();
+    }
+
+    @Test
+    public void shouldAcceptCustomExecutorWithoutAsyncMethods() throws Exception {
+        http.enqueueResponse(200, "fixtures/page.json");
+        DummyListRequest<Integer> request = new DummyListRequest<>(http.client(),
+                new ListRequest.ListRequestExecutor<Integer, DummyItem>() {
+                    @Override
+                    public Integer execute(ListRequest<Integer, DummyItem> request,
+                            HttpClient client) {
+                        return client.executeWithRetries(request).getItems().size();
+                    }
+
+                    @Override
+                    public ApiResponse<Integer> executeWrapped(
+                            ListRequest<Integer, DummyItem> request, HttpClient client) {
+                        throw new UnsupportedOperationException();
+                    }
+                });
+        assertThat(request.execute()).isEqualTo(2);
+        exception.expect(IllegalStateException.class);
+        request.executeAsync();
+    }
+
+    @Test
+    public void shouldIterateLazilyThroughAllPages() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        List<DummyItem> result =
+                DummyListRequest.pageRequest(http.client()).iterate().skip(1).toList();
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).stringField).isEqualTo("bar");
+        assertThat(result.get(1).stringField).isEqualTo("baz");
+        http.assertRequestMade("GET", "/dummy?id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        http.assertRequestMade("GET", "/dummy?after=ID123&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+    }
+
+    @Test
+    public void shouldNotFetchMorePagesThanNeeded() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        List<DummyItem> result =
+                DummyListRequest.iterableRequest(http.client()).iterate().limit(2).toList();
+        assertThat(result).hasSize(2);
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotFetchMorePagesThanNeededWithPrefetch() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        GoCardlessClient client =
+                GoCardlessClient.newBuilder("token").withBaseUrl(http.getBaseUrl())
+                        .withPagePrefetch(2).build();
+        List<DummyItem> result =
+                DummyListRequest.iterableRequest(TestUtil.getHttpClient(client)).iterate()
+                        .limit(2).toList();
+        assertThat(result).hasSize(2);
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldIterateLazilyThroughPages() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        List<ListResponse<DummyItem>> pages =
+                DummyListRequest.pageRequest(http.client()).iteratePages().toList();
+        assertThat(pages).hasSize(2);
+        assertThat(pages.get(0).getItems()).hasSize(2);
+        assertThat(pages.get(0).getAfter()).isEqualTo("ID123");
+        assertThat(pages.get(1).getItems()).hasSize(1);
+        assertThat(pages.get(1).getLinked().size()).isEqualTo(0);
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
     static class DummyListRequest<S> extends ListRequest<S, DummyItem> {
-        private DummyListRequest(HttpClient httpClient, ListRequestExecutor<S, DummyItem> executor) {
+        DummyListRequest(HttpClient httpClient, ListRequestExecutor<S, DummyItem> executor) {
             super(httpClient, executor);
         }
 
@@ -2,6 +2,7 @@ package com.gocardless.http;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.gocardless.GoCardlessClient;
 import com.gocardless.TestUtil;
@@ -20,6 +21,7 @@ import static com.gocardless.http.HttpTestUtil.jsonMatchesFixture;
 import static com.google.common.base.Charsets.UTF_8;
 
 import static com.squareup.okhttp.mockwebserver.SocketPolicy.DISCONNECT_AT_START;
+import static com.squareup.okhttp.mockwebserver.SocketPolicy.NO_RESPONSE;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -55,10 +57,32 @@ public class MockHttp extends ExternalResource {
         server.enqueue(response);
     }
 
+    /**
+     * Enqueues a response whose body is sent slowly, so that the request stays in flight for
+     * a few hundred milliseconds.
+     */
+    public void enqueueSlowResponse(int statusCode, String fixturePath) throws Exception {
+        String body = Resources.toString(Resources.getResource(fixturePath), UTF_8);
+        server.enqueue(new MockResponse().setBody(body).setResponseCode(statusCode)
+                .throttleBody(16, 50, TimeUnit.MILLISECONDS));
+    }
+
+    public void enqueueEmptyResponse(int statusCode, Map<String, String> headers) {
+        MockResponse response = new MockResponse().setResponseCode(statusCode);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+        server.enqueue(response);
+    }
+
     public void enqueueNetworkFailure() {
         server.enqueue(new MockResponse().setSocketPolicy(DISCONNECT_AT_START));
     }
 
+    public void enqueueNoResponse() {
+        server.enqueue(new MockResponse().setSocketPolicy(NO_RESPONSE));
+    }
+
     public void assertRequestMade(String method, String path) throws Exception {
         assertRequestMade(method, path, null, ImmutableMap.<String, String>of());
     }
@@ -93,6 +117,19 @@ public class MockHttp extends ExternalResource {
         assertThat(recordedRequest.getHeader(headerName)).isNotNull();
     }
 
+    public void assertRequestUsedConnection(int sequenceNumber) throws Exception {
+        RecordedRequest recordedRequest = server.takeRequest();
+        assertThat(recordedRequest.getSequenceNumber()).isEqualTo(sequenceNumber);
+    }
+
+    public RecordedRequest takeRequest() throws Exception {
+        return server.takeRequest();
+    }
+
+    public int getRequestCount() {
+        return server.getRequestCount();
+    }
+
     public String getBaseUrl() {
         return String.format("http://localhost:%d", server.getPort());
     }
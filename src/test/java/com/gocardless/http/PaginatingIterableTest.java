@@ -1,7 +1,11 @@
 package com.gocardless.http;
 
+import java.util.Iterator;
 import java.util.List;
 
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+
 import com.gocardless.http.HttpTestUtil.DummyItem;
 import com.gocardless.http.ListRequestTest.DummyListRequest;
 
@@ -104,4 +108,76 @@ public class PaginatingIterableTest {
         http.assertRequestMade("GET", "/dummy?after=ID123&limit=2&id=123",
                 ImmutableMap.of("Authorization", "Bearer token"));
     }
+
+    @Test
+    public void shouldIterateThroughPagesWithPrefetch() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        HttpClient client = prefetchingClient(2);
+        DummyListRequest<Iterable<DummyItem>> request = DummyListRequest.iterableRequest(client);
+        request.setLimit(2);
+        Iterable<DummyItem> iterable = new PaginatingIterable<>(request, client);
+        List<DummyItem> items = Lists.newArrayList(iterable);
+        assertThat(items).hasSize(3);
+        assertThat(items.get(0).stringField).isEqualTo("foo");
+        assertThat(items.get(1).stringField).isEqualTo("bar");
+        assertThat(items.get(2).stringField).isEqualTo("baz");
+        http.assertRequestMade("GET", "/dummy?limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        http.assertRequestMade("GET", "/dummy?after=ID123&limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldFetchNextPageBeforeCurrentPageIsConsumed() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        HttpClient client = prefetchingClient(1);
+        DummyListRequest<Iterable<DummyItem>> request = DummyListRequest.iterableRequest(client);
+        request.setLimit(2);
+        Iterator<DummyItem> iterator = new PaginatingIterable<>(request, client).iterator();
+        assertThat(iterator.next().stringField).isEqualTo("foo");
+        http.assertRequestMade("GET", "/dummy?limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        // Only one item from the first page has been consumed at this point.
+        http.assertRequestMade("GET", "/dummy?after=ID123&limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        assertThat(Lists.newArrayList(iterator)).hasSize(2);
+    }
+
+    @Test
+    public void shouldCopeWithEmptyLastPageWithPrefetch() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(200, "fixtures/empty-page.json");
+        HttpClient client = prefetchingClient(3);
+        DummyListRequest<Iterable<DummyItem>> request = DummyListRequest.iterableRequest(client);
+        request.setLimit(2);
+        List<DummyItem> items = Lists.newArrayList(new PaginatingIterable<>(request, client));
+        assertThat(items).hasSize(2);
+    }
+
+    @Test
+    public void shouldRetryOnInternalErrorWithPrefetch() throws Exception {
+        http.enqueueResponse(200, "fixtures/first-page.json");
+        http.enqueueResponse(500, "fixtures/internal_error.json");
+        http.enqueueResponse(200, "fixtures/last-page.json");
+        HttpClient client = prefetchingClient(1);
+        DummyListRequest<Iterable<DummyItem>> request = DummyListRequest.iterableRequest(client);
+        request.setLimit(2);
+        List<DummyItem> items = Lists.newArrayList(new PaginatingIterable<>(request, client));
+        assertThat(items).hasSize(3);
+        http.assertRequestMade("GET", "/dummy?limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        http.assertRequestMade("GET", "/dummy?after=ID123&limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+        http.assertRequestMade("GET", "/dummy?after=ID123&limit=2&id=123",
+                ImmutableMap.of("Authorization", "Bearer token"));
+    }
+
+    private HttpClient prefetchingClient(int pagePrefetchDepth) {
+        GoCardlessClient client =
+                GoCardlessClient.newBuilder("token").withBaseUrl(http.getBaseUrl())
+                        .withPagePrefetch(pagePrefetchDepth).build();
+        return TestUtil.getHttpClient(client);
+    }
 }
@@ -0,0 +1,149 @@
+package com.gocardless.http;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+import com.gocardless.errors.InvalidApiUsageException;
+import com.gocardless.http.HttpTestUtil.DummyItem;
+import com.gocardless.http.ListRequestTest.DummyListRequest;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionedExportTest {
+    private static final Date FROM = new Date(1514764800000L); // 2018-01-01T00:00:00Z
+    private static final Date TO = new Date(1514851200000L); // 2018-01-02T00:00:00Z
+    @Rule
+    public final MockHttp http = new MockHttp();
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void shouldListEveryWindowInOrder() throws Exception {
+        http.enqueueResponse(200, "fixtures/export-newer-first-page.json");
+        http.enqueueResponse(200, "fixtures/export-newer-last-page.json");
+        http.enqueueResponse(200, "fixtures/export-older-page.json");
+        PartitionedExport<DummyItem> export =
+                new PartitionedExport<>(new DummyRequestFactory(http.client()))
+                        .withCreatedAtRange(FROM, TO).withPartitions(2).withParallelism(1)
+                        .withOrdered(true);
+        List<DummyItem> items;
+        try (PartitionedExport.ExportIterator<DummyItem> iterator = export.execute()) {
+            items = Lists.newArrayList(iterator);
+        }
+        // Newest first across windows, as if the whole range were walked with one cursor.
+        assertThat(items).extracting("intField").containsExactly(4, 3, 2, 1);
+        http.assertRequestMade("GET", "/dummy?created_at[gte]=2018-01-01T12:00:00.000Z"
+                + "&created_at[lt]=2018-01-02T00:00:00.000Z&id=123");
+        http.assertRequestMade("GET", "/dummy?created_at[gte]=2018-01-01T12:00:00.000Z"
+                + "&created_at[lt]=2018-01-02T00:00:00.000Z&after=ID3&id=123");
+        http.assertRequestMade("GET", "/dummy?created_at[gte]=2018-01-01T00:00:00.000Z"
+                + "&created_at[lt]=2018-01-01T12:00:00.000Z&id=123");
+    }
+
+    @Test
+    public void shouldListEveryWindowConcurrently() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            http.enqueueResponse(200, "fixtures/last-page.json");
+        }
+        PartitionedExport<DummyItem> export =
+                new PartitionedExport<>(new DummyRequestFactory(http.client()))
+                        .withCreatedAtRange(FROM, TO).withPartitions(8);
+        List<DummyItem> items;
+        try (PartitionedExport.ExportIterator<DummyItem> iterator = export.execute()) {
+            items = Lists.newArrayList(iterator);
+        }
+        assertThat(items).hasSize(8);
+        assertThat(http.getRequestCount()).isEqualTo(8);
+    }
+
+    @Test
+    public void shouldPropagateFailures() throws Exception {
+        http.enqueueResponse(400, "fixtures/invalid_api_usage.json");
+        PartitionedExport<DummyItem> export =
+                new PartitionedExport<>(new DummyRequestFactory(http.client()))
+                        .withCreatedAtRange(FROM, TO).withPartitions(1);
+        exception.expect(InvalidApiUsageException.class);
+        try (PartitionedExport.ExportIterator<DummyItem> iterator = export.execute()) {
+            iterator.next();
+        }
+    }
+
+    @Test
+    public void shouldCancelRequestsInFlightWhenClosed() throws Exception {
+        http.enqueueNoResponse();
+        InMemoryClientMetrics metrics = new InMemoryClientMetrics();
+        HttpClient client = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withMetrics(metrics).build());
+        PartitionedExport<DummyItem> export = new PartitionedExport<>(
+                new DummyRequestFactory(client)).withCreatedAtRange(FROM, TO).withPartitions(1);
+        PartitionedExport.ExportIterator<DummyItem> iterator = export.execute();
+        http.takeRequest();
+        iterator.close();
+        // The server never responds, so the request only ends if it's cancelled.
+        long deadline = System.currentTimeMillis() + 2000;
+        while (metrics.getEndpoints().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(metrics.getEndpoints().values()).extracting("errorCount").containsExactly(1L);
+    }
+
+    @Test(timeout = 5000)
+    public void shouldEndIterationWhenClosedByAnotherThread() throws Exception {
+        http.enqueueNoResponse();
+        PartitionedExport<DummyItem> export = new PartitionedExport<>(
+                new DummyRequestFactory(http.client())).withCreatedAtRange(FROM, TO)
+                        .withPartitions(1);
+        final PartitionedExport.ExportIterator<DummyItem> iterator = export.execute();
+        ExecutorService consumer = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> hasNext = consumer.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return iterator.hasNext();
+                }
+            });
+            http.takeRequest();
+            iterator.close();
+            assertThat(hasNext.get()).isFalse();
+        } finally {
+            consumer.shutdownNow();
+        }
+    }
+
+    private static class DummyRequestFactory implements
+            PartitionedExport.RequestFactory<DummyItem> {
+        private final HttpClient client;
+
+        private DummyRequestFactory(HttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public ListRequest<?, DummyItem> create(final String createdAtGte,
+                final String createdAtLt) {
+            return new DummyListRequest<ListResponse<DummyItem>>(client,
+                    ListRequest.<DummyItem>pagingExecutor()) {
+                @Override
+                protected ImmutableMap<String, Object> getQueryParams() {
+                    return ImmutableMap.<String, Object>builder()
+                            .put("created_at[gte]", createdAtGte)
+                            .put("created_at[lt]", createdAtLt).putAll(super.getQueryParams())
+                            .build();
+                }
+            };
+        }
+    }
+}
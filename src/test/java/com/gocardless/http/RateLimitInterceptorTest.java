@@ -0,0 +1,54 @@
+package com.gocardless.http;
+
+import com.google.common.base.Ticker;
+
+import com.squareup.okhttp.Headers;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitInterceptorTest {
+    private final FakeTicker ticker = new FakeTicker();
+    private final RateLimitInterceptor limiter = new RateLimitInterceptor(ticker);
+
+    @Test
+    public void shouldNotPaceBeforeFirstResponse() {
+        assertThat(limiter.reserve()).isEqualTo(0);
+        assertThat(limiter.reserve()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldSpreadRemainingRequestsOverWindow() {
+        limiter.update(Headers.of("RateLimit-Remaining", "10", "RateLimit-Reset", "5"));
+        assertThat(limiter.reserve()).isEqualTo(0);
+        assertThat(limiter.reserve()).isEqualTo(SECONDS.toNanos(5) / 10);
+        assertThat(limiter.reserve()).isEqualTo(2 * SECONDS.toNanos(5) / 10);
+        ticker.nanos += SECONDS.toNanos(2);
+        assertThat(limiter.reserve()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldWaitForResetWhenNoRequestsRemain() {
+        limiter.update(Headers.of("RateLimit-Remaining", "0", "RateLimit-Reset", "3"));
+        assertThat(limiter.reserve()).isEqualTo(SECONDS.toNanos(3));
+    }
+
+    @Test
+    public void shouldIgnoreResponsesWithoutRateLimitHeaders() {
+        limiter.update(Headers.of("RateLimit-Remaining", "0"));
+        limiter.update(Headers.of("Content-Type", "application/json"));
+        assertThat(limiter.reserve()).isEqualTo(0);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
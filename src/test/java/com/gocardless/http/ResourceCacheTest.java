@@ -0,0 +1,232 @@
+package com.gocardless.http;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.TestUtil;
+import com.gocardless.http.HttpTestUtil.DummyItem;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceCacheTest {
+    @Rule
+    public final MockHttp http = new MockHttp();
+    private final FakeTicker ticker = new FakeTicker();
+    private final ResourceCache cache = ResourceCache.newBuilder()
+            .withResource("items", 5, MINUTES).withTicker(ticker).build();
+    private HttpClient client;
+
+    @Before
+    public void setUp() {
+        GoCardlessClient goCardlessClient = GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withResourceCache(cache).build();
+        client = TestUtil.getHttpClient(goCardlessClient);
+    }
+
+    @Test
+    public void shouldServeRepeatedGetsFromCache() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        DummyItem first = new DummyGetRequest("items", "123").execute();
+        DummyItem second = new DummyGetRequest("items", "123").execute();
+        assertThat(second).isSameAs(first);
+        assertThat(http.getRequestCount()).isEqualTo(1);
+        assertThat(cache.getStats().getHitCount()).isEqualTo(1);
+        assertThat(cache.getStats().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldUseLastTimeToLiveConfiguredForResource() throws Exception {
+        ResourceCache cache = ResourceCache.newBuilder().withResource("items", 5, MINUTES)
+                .withResource("items", 10, MINUTES).withTicker(ticker).build();
+        HttpClient client = TestUtil.getHttpClient(GoCardlessClient.newBuilder("token")
+                .withBaseUrl(http.getBaseUrl()).withResourceCache(cache).build());
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest(client, "items", "123").execute();
+        ticker.nanos += MINUTES.toNanos(6);
+        new DummyGetRequest(client, "items", "123").execute();
+        assertThat(http.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFetchAgainOnceExpired() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest("items", "123").execute();
+        ticker.nanos += MINUTES.toNanos(6);
+        new DummyGetRequest("items", "123").execute();
+        assertThat(http.getRequestCount()).isEqualTo(2);
+        http.assertRequestMade("GET", "/dummy/123");
+        http.assertRequestMade("GET", "/dummy/123");
+    }
+
+    @Test
+    public void shouldRevalidateWithETagOnceExpired() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json", ImmutableMap.of("ETag", "\"v1\""));
+        http.enqueueEmptyResponse(304, ImmutableMap.<String, String>of());
+        DummyItem first = new DummyGetRequest("items", "123").execute();
+        ticker.nanos += MINUTES.toNanos(6);
+        DummyItem second = new DummyGetRequest("items", "123").execute();
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getStats().getRevalidationCount()).isEqualTo(1);
+        http.assertRequestMade("GET", "/dummy/123");
+        http.assertRequestMade("GET", "/dummy/123", ImmutableMap.of("If-None-Match", "\"v1\""));
+    }
+
+    @Test
+    public void shouldNotCacheOtherResourceTypes() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest("others", "123").execute();
+        new DummyGetRequest("others", "123").execute();
+        assertThat(http.getRequestCount()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCacheEachResourceSeparately() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest("items", "123").execute();
+        new DummyGetRequest("items", "456").execute();
+        assertThat(http.getRequestCount()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFetchAgainAfterInvalidation() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest("items", "123").execute();
+        cache.invalidate("items", "123");
+        new DummyGetRequest("items", "123").execute();
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldInvalidateResourceUpdatedThroughClient() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest("items", "123").execute();
+        new DummyPutRequest("123").execute();
+        new DummyGetRequest("items", "123").execute();
+        assertThat(http.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotStoreResponseFetchedBeforeUpdate() throws Exception {
+        http.enqueueSlowResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        Thread get = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                new DummyGetRequest("items", "123").execute();
+            }
+        });
+        get.start();
+        http.takeRequest();
+        // The update completes while the GET's response is still arriving.
+        new DummyPutRequest("123").execute();
+        get.join();
+        new DummyGetRequest("items", "123").execute();
+        assertThat(http.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldOnlyInvalidateTheGivenResource() throws Exception {
+        http.enqueueResponse(200, "fixtures/single.json");
+        http.enqueueResponse(200, "fixtures/single.json");
+        new DummyGetRequest("items", "123").execute();
+        new DummyGetRequest("items", "456").execute();
+        cache.invalidate("items", "123");
+        assertThat(cache.size()).isEqualTo(1);
+        new DummyGetRequest("items", "456").execute();
+        assertThat(http.getRequestCount()).isEqualTo(2);
+    }
+
+    private class DummyGetRequest extends GetRequest<DummyItem> {
+        private final String envelope;
+        private final String identity;
+
+        public DummyGetRequest(String envelope, String identity) {
+            this(client, envelope, identity);
+        }
+
+        public DummyGetRequest(HttpClient httpClient, String envelope, String identity) {
+            super(httpClient);
+            this.envelope = envelope;
+            this.identity = identity;
+        }
+
+        @Override
+        protected ImmutableMap<String, String> getPathParams() {
+            return ImmutableMap.of("identity", identity);
+        }
+
+        @Override
+        protected String getPathTemplate() {
+            return "/dummy/:identity";
+        }
+
+        @Override
+        protected String getEnvelope() {
+            return envelope;
+        }
+
+        @Override
+        protected Class<DummyItem> getResponseClass() {
+            return DummyItem.class;
+        }
+    }
+
+    private class DummyPutRequest extends PutRequest<DummyItem> {
+        private final String identity;
+
+        public DummyPutRequest(String identity) {
+            super(client);
+            this.identity = identity;
+        }
+
+        @Override
+        protected ImmutableMap<String, String> getPathParams() {
+            return ImmutableMap.of("identity", identity);
+        }
+
+        @Override
+        protected String getPathTemplate() {
+            return "/dummy/:identity";
+        }
+
+        @Override
+        protected String getEnvelope() {
+            return "items";
+        }
+
+        @Override
+        protected Class<DummyItem> getResponseClass() {
+            return DummyItem.class;
+        }
+
+        @Override
+        protected boolean hasBody() {
+            return false;
+        }
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.gocardless.http;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URL;
 import java.util.List;
 
 import com.gocardless.errors.*;
 import com.gocardless.http.HttpTestUtil.DummyItem;
+import com.gocardless.resources.Payment;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Resources;
@@ -55,19 +57,58 @@ public class ResponseParserTest {
     }
 
     @Test
-    public void shouldParsePage() throws IOException {
+    public void shouldParseSingleFromStream() throws IOException {
+        URL resource = Resources.getResource("fixtures/single.json");
+        try (Reader responseBody = Resources.asCharSource(resource, UTF_8).openStream()) {
+            DummyItem result = parser.parseSingle(responseBody, "items", DummyItem.class);
+            assertThat(result.stringField).isEqualTo("foo");
+            assertThat(result.intField).isEqualTo(123);
+        }
+    }
+
+    @Test
+    public void shouldParsePageFromStream() throws IOException {
         URL resource = Resources.getResource("fixtures/page.json");
-        String responseBody = Resources.toString(resource, UTF_8);
-        ListResponse<DummyItem> result =
-                parser.parsePage(responseBody, "items", new TypeToken<List<DummyItem>>() {});
-        assertThat(result.getItems()).hasSize(2);
-        assertThat(result.getItems().get(0).stringField).isEqualTo("foo");
-        assertThat(result.getItems().get(0).intField).isEqualTo(123);
-        assertThat(result.getItems().get(1).stringField).isEqualTo("bar");
-        assertThat(result.getItems().get(1).intField).isEqualTo(456);
-        assertThat(result.getAfter()).isEqualTo("ID123");
-        assertThat(result.getBefore()).isEqualTo("ID456");
-        assertThat(result.getLimit()).isEqualTo(50);
+        try (Reader responseBody = Resources.asCharSource(resource, UTF_8).openStream()) {
+            ListResponse<DummyItem> result =
+                    parser.parsePage(responseBody, "items", new TypeToken<List<DummyItem>>() {});
+            assertThat(result.getItems()).hasSize(2);
+            assertThat(result.getItems().get(0).stringField).isEqualTo("foo");
+            assertThat(result.getItems().get(0).intField).isEqualTo(123);
+            assertThat(result.getItems().get(1).stringField).isEqualTo("bar");
+            assertThat(result.getItems().get(1).intField).isEqualTo(456);
+            assertThat(result.getAfter()).isEqualTo("ID123");
+            assertThat(result.getBefore()).isEqualTo("ID456");
+            assertThat(result.getLimit()).isEqualTo(50);
+            assertThat(result.getLinked().size()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void shouldParseLinkedResourcesFromStream() throws IOException {
+        URL resource = Resources.getResource("fixtures/linked-page.json");
+        try (Reader responseBody = Resources.asCharSource(resource, UTF_8).openStream()) {
+            ListResponse<DummyItem> result =
+                    parser.parsePage(responseBody, "items", new TypeToken<List<DummyItem>>() {});
+            LinkedResources linked = result.getLinked();
+            assertThat(result.getItems()).hasSize(1);
+            assertThat(linked.size()).isEqualTo(2);
+            assertThat(linked.getPayment("PM123").getAmount()).isEqualTo(1000);
+            assertThat(linked.getPayment("PM123").getCurrency()).isEqualTo(Payment.Currency.GBP);
+            assertThat(linked.getPayment("PM123")).isSameAs(linked.getPayment("PM123"));
+            assertThat(linked.getMandate("MD123").getReference()).isEqualTo("REF-123");
+            assertThat(linked.getMandate("PM123")).isNull();
+            assertThat(linked.getPayment(null)).isNull();
+        }
+    }
+
+    @Test
+    public void shouldHandleNonJsonStream() throws IOException {
+        exception.expect(MalformedResponseException.class);
+        URL resource = Resources.getResource("fixtures/non_json_response.html");
+        try (Reader responseBody = Resources.asCharSource(resource, UTF_8).openStream()) {
+            parser.parseSingle(responseBody, "items", DummyItem.class);
+        }
     }
 
     @Test
@@ -0,0 +1,49 @@
+package com.gocardless.http;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RetryPolicyTest {
+    private final RetryPolicy policy = RetryPolicy.newBuilder().withMaxAttempts(5)
+            .withInitialBackoff(100, MILLISECONDS).withMaxBackoff(300, MILLISECONDS)
+            .withMaxElapsedTime(10, SECONDS).build();
+
+    @Test
+    public void shouldBackOffExponentiallyWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.getDelayMillis(1, 0, -1)).isBetween(0L, 100L);
+            assertThat(policy.getDelayMillis(2, 0, -1)).isBetween(0L, 200L);
+            assertThat(policy.getDelayMillis(4, 0, -1)).isBetween(0L, 300L);
+        }
+    }
+
+    @Test
+    public void shouldStopAfterMaxAttempts() {
+        assertThat(policy.getDelayMillis(5, 0, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldHonourRequestedWait() {
+        assertThat(policy.getDelayMillis(1, 0, 2000)).isEqualTo(2000);
+    }
+
+    @Test
+    public void shouldStopWhenWaitWouldExceedMaxElapsedTime() {
+        assertThat(policy.getDelayMillis(1, 9000, 2000)).isEqualTo(-1);
+        assertThat(policy.getDelayMillis(1, 10001, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldOnlyRetryRateLimitedRequestsIfConfigured() {
+        assertThat(policy.isRetryableStatus(429)).isTrue();
+        assertThat(policy.isRetryableStatus(503)).isTrue();
+        assertThat(policy.isRetryableStatus(400)).isFalse();
+        RetryPolicy noRateLimitRetries =
+                RetryPolicy.newBuilder().withRetryRateLimited(false).build();
+        assertThat(noRateLimitRetries.isRetryableStatus(429)).isFalse();
+    }
+}
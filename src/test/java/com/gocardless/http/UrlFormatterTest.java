@@ -55,6 +55,27 @@ public class UrlFormatterTest {
         assertThat(result.toString()).isEqualTo("http://example.com" + template);
     }
 
+    @Test
+    public void shouldSubstituteDifferentValuesIntoSameTemplate() {
+        String template = "/foo/:bar/actions/cancel";
+        Map<String, Object> queryParams = ImmutableMap.of();
+        HttpUrl first =
+                urlFormatter.formatUrl(template, ImmutableMap.of("bar", "123"), queryParams);
+        HttpUrl second =
+                urlFormatter.formatUrl(template, ImmutableMap.of("bar", "456"), queryParams);
+        assertThat(first.toString()).isEqualTo("http://example.com/foo/123/actions/cancel");
+        assertThat(second.toString()).isEqualTo("http://example.com/foo/456/actions/cancel");
+    }
+
+    @Test
+    public void shouldOnlySubstituteWholeParameterNames() {
+        String template = "/foo/:identity";
+        Map<String, String> pathParams = ImmutableMap.of("id", "123");
+        Map<String, Object> queryParams = ImmutableMap.of();
+        HttpUrl result = urlFormatter.formatUrl(template, pathParams, queryParams);
+        assertThat(result.toString()).isEqualTo("http://example.com/foo/:identity");
+    }
+
     @Test
     public void shouldAddQueryParam() {
         String template = "/foo";
@@ -1,16 +1,23 @@
 package com.gocardless.http;
 
 import java.io.IOException;
+import java.io.StringReader;
 
+import com.gocardless.errors.MalformedResponseException;
 import com.gocardless.resources.Event;
 
 import com.google.common.collect.ImmutableList;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class WebhookParserTest {
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
     @Test
     public void shouldParseWebhook() throws IOException {
         String requestBody =
@@ -20,4 +27,26 @@ public class WebhookParserTest {
         assertThat(events.get(0).getId()).isEqualTo("EV00BD05S5VM2T");
         assertThat(events.get(1).getId()).isEqualTo("EV00BD05TB8K63");
     }
+
+    @Test
+    public void shouldIterateOverEventsOneAtATime() throws IOException {
+        String requestBody =
+                "{\"meta\":{\"webhook_id\":\"WB123\"},\"events\":[{\"id\":\"EV1\",\"resource_type\":\"payments\",\"action\":\"confirmed\",\"links\":{\"payment\":\"PM1\"}},{\"id\":\"EV2\",\"resource_type\":\"mandates\",\"action\":\"active\",\"links\":{\"mandate\":\"MD1\"}}";
+        // The body is truncated after the second event, so the first two can only be parsed
+        // if events are read one at a time.
+        try (WebhookEventIterator events = WebhookParser.iterate(new StringReader(requestBody))) {
+            assertThat(events.next().getId()).isEqualTo("EV1");
+            assertThat(events.next().getLinks().getMandate()).isEqualTo("MD1");
+            exception.expect(MalformedResponseException.class);
+            events.hasNext();
+        }
+    }
+
+    @Test
+    public void shouldIterateOverEmptyWebhook() throws IOException {
+        try (WebhookEventIterator events =
+                WebhookParser.iterate(new StringReader("{\"events\":[]}"))) {
+            assertThat(events.hasNext()).isFalse();
+        }
+    }
 }